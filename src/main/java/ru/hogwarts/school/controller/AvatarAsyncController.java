@@ -0,0 +1,80 @@
+package ru.hogwarts.school.controller;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.hogwarts.school.model.dto.AvatarInfo;
+import ru.hogwarts.school.model.dto.AvatarView;
+import ru.hogwarts.school.service.AvatarAsyncIoService;
+import ru.hogwarts.school.service.AvatarBlobStreamer;
+import ru.hogwarts.school.service.AvatarService;
+
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequestMapping("/avatar/async")
+public class AvatarAsyncController {
+    private final AvatarService avatarService;
+    private final AvatarAsyncIoService asyncIoService;
+    private final AvatarBlobStreamer blobStreamer;
+
+    public AvatarAsyncController(AvatarService avatarService, AvatarAsyncIoService asyncIoService,
+                                 AvatarBlobStreamer blobStreamer) {
+        this.avatarService = avatarService;
+        this.asyncIoService = asyncIoService;
+        this.blobStreamer = blobStreamer;
+    }
+
+    @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public CompletableFuture<Long> uploadAvatar(@RequestParam("studentId") long studentId,
+                                                @RequestBody MultipartFile file) {
+        return asyncIoService.uploadAvatar(studentId, file);
+    }
+
+    @GetMapping("/get/from-directory")
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> getAvatarFromDirectory(@RequestParam("studentID") long studentId,
+                                                                                           @RequestParam(value = "size", required = false) Integer size,
+                                                                                           WebRequest webRequest) {
+        AvatarInfo info = avatarService.getAvatarInfo(studentId);
+        return asyncIoService.resolveAvatar(info, size)
+                .thenApply(view -> view != null ? send(view, webRequest) : sendBlob(info, webRequest));
+    }
+
+    private ResponseEntity<StreamingResponseBody> send(AvatarView view, WebRequest webRequest) {
+        if (webRequest.checkNotModified(view.getETag(), view.getLastModified())) {
+            if (view.getCached() != null) {
+                view.getCached().close();
+            }
+            return notModified();
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .contentType(view.getMediaType())
+                .contentLength(view.getLength())
+                .body(out -> asyncIoService.transfer(view, out));
+    }
+
+    private ResponseEntity<StreamingResponseBody> sendBlob(AvatarInfo info, WebRequest webRequest) {
+        long lastModified = info.getUpdatedAt() == null ? -1 : info.getUpdatedAt().toEpochMilli();
+        String eTag = info.getContentHash() == null ? null : "\"" + info.getContentHash() + "\"";
+        if (webRequest.checkNotModified(eTag, lastModified)) {
+            return notModified();
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.parseMediaType(info.getMediaType()))
+                .contentLength(info.getFileSize())
+                .body(out -> blobStreamer.stream(info, out));
+    }
+
+    private ResponseEntity<StreamingResponseBody> notModified() {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .cacheControl(CacheControl.noCache())
+                .build();
+    }
+}
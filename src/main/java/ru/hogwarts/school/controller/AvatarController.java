@@ -1,49 +1,272 @@
 package ru.hogwarts.school.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
-import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.exceptions.AvatarNotFoundException;
+import ru.hogwarts.school.model.AvatarArchiveFormat;
+import ru.hogwarts.school.model.AvatarStorageMode;
+import ru.hogwarts.school.model.dto.AvatarChunkedUploadStatus;
+import ru.hogwarts.school.model.dto.AvatarInfo;
+import ru.hogwarts.school.model.dto.AvatarMigrationStatus;
+import ru.hogwarts.school.model.dto.AvatarPage;
+import ru.hogwarts.school.model.dto.AvatarUploadJobStatus;
+import ru.hogwarts.school.model.dto.AvatarUploadQueueStatus;
+import ru.hogwarts.school.model.dto.AvatarUploadResult;
 import ru.hogwarts.school.model.dto.AvatarView;
+import ru.hogwarts.school.service.AvatarBatchService;
+import ru.hogwarts.school.service.AvatarBlobStreamer;
+import ru.hogwarts.school.service.AvatarBulkUploadService;
+import ru.hogwarts.school.service.AvatarChunkedUploadService;
+import ru.hogwarts.school.service.AvatarExportService;
+import ru.hogwarts.school.service.AvatarIngestionService;
 import ru.hogwarts.school.service.AvatarService;
+import ru.hogwarts.school.service.AvatarStorageMigrationService;
 
 import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
 import java.util.List;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/avatar")
 public class AvatarController {
+    private static final CacheControl REVALIDATE = CacheControl.noCache();
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+
     private final AvatarService avatarService;
+    private final AvatarStorageMigrationService migrationService;
+    private final AvatarFileWriter avatarFileWriter;
+    private final AvatarBulkUploadService bulkUploadService;
+    private final AvatarIngestionService ingestionService;
+    private final AvatarBlobStreamer blobStreamer;
+    private final AvatarExportService exportService;
+    private final AvatarBatchService batchService;
+    private final AvatarChunkedUploadService chunkedUploadService;
+    private final boolean asyncUploads;
 
-    public AvatarController(AvatarService avatarService) {
+    public AvatarController(AvatarService avatarService, AvatarStorageMigrationService migrationService,
+                            AvatarFileWriter avatarFileWriter, AvatarBulkUploadService bulkUploadService,
+                            AvatarIngestionService ingestionService, AvatarBlobStreamer blobStreamer,
+                            AvatarExportService exportService, AvatarBatchService batchService,
+                            AvatarChunkedUploadService chunkedUploadService,
+                            @Value("${avatar.upload.async.enabled:false}") boolean asyncUploads) {
         this.avatarService = avatarService;
+        this.migrationService = migrationService;
+        this.avatarFileWriter = avatarFileWriter;
+        this.bulkUploadService = bulkUploadService;
+        this.ingestionService = ingestionService;
+        this.blobStreamer = blobStreamer;
+        this.exportService = exportService;
+        this.batchService = batchService;
+        this.chunkedUploadService = chunkedUploadService;
+        this.asyncUploads = asyncUploads;
     }
 
     @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public long uploadAvatar(@RequestParam("studentId") long studentId, @RequestBody MultipartFile file) throws IOException {
-        return avatarService.uploadAvatar(studentId, file);
+    public ResponseEntity<Object> uploadAvatar(@RequestParam("studentId") long studentId,
+                                               @RequestParam(value = "async", required = false) Boolean async,
+                                               @RequestBody MultipartFile file) throws IOException {
+        if (async != null ? async : asyncUploads) {
+            AvatarUploadJobStatus job = ingestionService.submit(studentId, file);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/avatar/upload/jobs/" + job.getId()))
+                    .body(job);
+        }
+        return ResponseEntity.ok(avatarService.uploadAvatar(studentId, file));
+    }
+
+    @GetMapping("/upload/jobs/{id}")
+    public ResponseEntity<AvatarUploadJobStatus> getUploadJob(@PathVariable UUID id) {
+        return ResponseEntity.ok(ingestionService.getJob(id));
+    }
+
+    @GetMapping("/upload/queue")
+    public ResponseEntity<AvatarUploadQueueStatus> getUploadQueueStatus() {
+        return ResponseEntity.ok(ingestionService.getQueueStatus());
+    }
+
+    @PostMapping("/upload/chunked")
+    public ResponseEntity<AvatarChunkedUploadStatus> initiateChunkedUpload(@RequestParam("studentId") long studentId,
+                                                                           @RequestParam("size") long size) throws IOException {
+        AvatarChunkedUploadStatus upload = chunkedUploadService.initiate(studentId, size);
+        return ResponseEntity.created(URI.create("/avatar/upload/chunked/" + upload.getId())).body(upload);
+    }
+
+    @GetMapping("/upload/chunked/{id}")
+    public ResponseEntity<AvatarChunkedUploadStatus> getChunkedUpload(@PathVariable UUID id) {
+        return ResponseEntity.ok(chunkedUploadService.getStatus(id));
+    }
+
+    @PutMapping("/upload/chunked/{id}/chunks/{index}")
+    public ResponseEntity<AvatarChunkedUploadStatus> uploadChunk(@PathVariable UUID id, @PathVariable int index,
+                                                                 HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(chunkedUploadService.writeChunk(id, index, request.getInputStream()));
+    }
+
+    @PostMapping("/upload/chunked/{id}/complete")
+    public ResponseEntity<Long> completeChunkedUpload(@PathVariable UUID id) throws IOException {
+        return ResponseEntity.ok(chunkedUploadService.complete(id));
+    }
+
+    @DeleteMapping("/upload/chunked/{id}")
+    public ResponseEntity<Void> cancelChunkedUpload(@PathVariable UUID id) {
+        chunkedUploadService.cancel(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping(value = "/upload/bulk", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public List<AvatarUploadResult> uploadAvatars(@RequestParam("files") List<MultipartFile> files) throws IOException {
+        return bulkUploadService.uploadFiles(files);
+    }
+
+    @PostMapping(value = "/upload/bulk", consumes = "application/zip")
+    public List<AvatarUploadResult> uploadAvatarArchive(HttpServletRequest request) throws IOException {
+        return bulkUploadService.uploadArchive(request.getInputStream());
     }
 
     @GetMapping("/get/from-db")
-    public ResponseEntity<byte[]> getAvatarFromDb(@RequestParam("studentID") long studentId) {
-        Avatar avatar = avatarService.getAvatarFromDb(studentId);
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(avatar.getMediaType()))
-                .body(avatar.getData());
+    public void getAvatarFromDb(@RequestParam("studentID") long studentId,
+                                @RequestParam(value = "size", required = false) Integer size,
+                                WebRequest webRequest,
+                                HttpServletRequest request,
+                                HttpServletResponse response) throws IOException {
+        AvatarInfo info = avatarService.getAvatarInfo(studentId);
+        serveAvatar(info, size, true, REVALIDATE, webRequest, request, response);
+    }
+
+    @GetMapping("/get/from-db/{version}")
+    public void getAvatarVersionFromDb(@RequestParam("studentID") long studentId,
+                                       @PathVariable String version,
+                                       @RequestParam(value = "size", required = false) Integer size,
+                                       WebRequest webRequest,
+                                       HttpServletRequest request,
+                                       HttpServletResponse response) throws IOException {
+        AvatarInfo info = avatarService.getAvatarInfo(studentId);
+        checkVersion(info.getContentHash(), version);
+        serveAvatar(info, size, true, IMMUTABLE, webRequest, request, response);
     }
 
     @GetMapping("/get/from-directory")
-    public ResponseEntity<byte[]> getAvatarFromDirectory(@RequestParam("studentID") long studentId) {
-        AvatarView view = avatarService.getAvatarFromDirectory(studentId);
-        return ResponseEntity.ok()
-                .contentType(view.getMediaType())
-                .body(view.getContent());
+    public void getAvatarFromDirectory(@RequestParam("studentID") long studentId,
+                                       @RequestParam(value = "size", required = false) Integer size,
+                                       WebRequest webRequest,
+                                       HttpServletRequest request,
+                                       HttpServletResponse response) throws IOException {
+        AvatarInfo info = avatarService.getAvatarInfo(studentId);
+        serveAvatar(info, size, false, REVALIDATE, webRequest, request, response);
+    }
+
+    @GetMapping("/get/from-directory/{version}")
+    public void getAvatarVersionFromDirectory(@RequestParam("studentID") long studentId,
+                                              @PathVariable String version,
+                                              @RequestParam(value = "size", required = false) Integer size,
+                                              WebRequest webRequest,
+                                              HttpServletRequest request,
+                                              HttpServletResponse response) throws IOException {
+        AvatarInfo info = avatarService.getAvatarInfo(studentId);
+        checkVersion(info.getContentHash(), version);
+        serveAvatar(info, size, false, IMMUTABLE, webRequest, request, response);
+    }
+
+    @GetMapping("/get/batch")
+    public void getAvatarBatch(@RequestParam("studentIds") List<Long> studentIds,
+                               @RequestParam(value = "size", required = false) Integer size,
+                               HttpServletResponse response) throws IOException {
+        AvatarFileWriter.MultipartWriter parts = avatarFileWriter.multipart(response);
+        batchService.fetch(studentIds, size, parts);
+        parts.finish();
     }
 
     @GetMapping("/get/pages")
-    public ResponseEntity<List<Avatar>> getAvatars(@RequestParam("pageNumber") Integer pageNumber,
+    public ResponseEntity<List<AvatarInfo>> getAvatars(@RequestParam("pageNumber") Integer pageNumber,
                                                    @RequestParam("pageSize") Integer pageSize) {
         return ResponseEntity.ok(avatarService.getAvatars(pageNumber, pageSize));
     }
+
+    @GetMapping("/get/pages/cursor")
+    public ResponseEntity<AvatarPage> getAvatarsAfter(@RequestParam(value = "after", required = false) String after,
+                                                      @RequestParam(value = "pageSize", defaultValue = "50") int pageSize) {
+        return ResponseEntity.ok(avatarService.getAvatarsAfter(after, pageSize));
+    }
+
+    @GetMapping("/export")
+    public void exportAvatars(@RequestParam(value = "facultyId", required = false) Long facultyId,
+                              @RequestParam(value = "format", defaultValue = "ZIP") AvatarArchiveFormat format,
+                              HttpServletResponse response) throws IOException {
+        response.setContentType(format.getMediaType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("avatars." + format.getExtension())
+                .build()
+                .toString());
+        exportService.export(facultyId, format, response.getOutputStream());
+    }
+
+    @PostMapping("/storage/migration")
+    public ResponseEntity<AvatarMigrationStatus> startStorageMigration(@RequestParam("target") AvatarStorageMode target,
+                                                                       @RequestParam(value = "batchSize", defaultValue = "100") int batchSize) {
+        return ResponseEntity.accepted().body(migrationService.start(target, batchSize));
+    }
+
+    @GetMapping("/storage/migration")
+    public ResponseEntity<AvatarMigrationStatus> getStorageMigrationStatus() {
+        return ResponseEntity.ok(migrationService.getStatus());
+    }
+
+    private void serveAvatar(AvatarInfo info, Integer size, boolean preferDb, CacheControl cacheControl, WebRequest webRequest,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (size != null) {
+            AvatarView rendition = avatarService.getRendition(info, size);
+            if (rendition != null) {
+                response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+                if (!webRequest.checkNotModified(rendition.getETag(), rendition.getLastModified())) {
+                    avatarFileWriter.write(rendition, request, response);
+                }
+                return;
+            }
+            cacheControl = REVALIDATE;
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        if (webRequest.checkNotModified(eTagOf(info.getContentHash()), lastModifiedOf(info))) {
+            return;
+        }
+        AvatarView cachedView = avatarService.getCachedAvatar(info, preferDb);
+        if (cachedView != null) {
+            try {
+                avatarFileWriter.write(cachedView, request, response);
+            } finally {
+                cachedView.getCached().close();
+            }
+            return;
+        }
+        if (info.getFilePath() == null || preferDb && info.getStorage().storesInDb()) {
+            avatarFileWriter.write(MediaType.parseMediaType(info.getMediaType()), info.getFileSize(),
+                    out -> blobStreamer.stream(info, out), request, response);
+            return;
+        }
+        avatarFileWriter.write(avatarService.getAvatarFile(info), request, response);
+    }
+
+    private long lastModifiedOf(AvatarInfo info) {
+        return info.getUpdatedAt() == null ? -1 : info.getUpdatedAt().toEpochMilli();
+    }
+
+    private void checkVersion(String contentHash, String version) {
+        if (contentHash == null || !contentHash.equals(version)) {
+            throw new AvatarNotFoundException("Версия аватара не найдена");
+        }
+    }
+
+    private String eTagOf(String contentHash) {
+        return contentHash == null ? null : "\"" + contentHash + "\"";
+    }
 }
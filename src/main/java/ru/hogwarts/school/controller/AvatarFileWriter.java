@@ -0,0 +1,193 @@
+package ru.hogwarts.school.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import ru.hogwarts.school.model.dto.AvatarPart;
+import ru.hogwarts.school.model.dto.AvatarView;
+import ru.hogwarts.school.service.AvatarBatchService;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+@Component
+public class AvatarFileWriter {
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    Logger logger = LoggerFactory.getLogger(AvatarFileWriter.class);
+
+    public void write(AvatarView view, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long length = view.getLength();
+        long start = 0;
+        long end = length - 1;
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (view.getLastModified() >= 0) {
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, view.getLastModified());
+        }
+        if (view.getETag() != null) {
+            response.setHeader(HttpHeaders.ETAG, view.getETag());
+        }
+
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && ifRangeMatches(request, view)) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException e) {
+                logger.warn("Invalid Range header: {}", rangeHeader);
+                ranges = List.of();
+            }
+            if (ranges.size() == 1) {
+                try {
+                    start = ranges.get(0).getRangeStart(length);
+                    end = ranges.get(0).getRangeEnd(length);
+                } catch (IllegalArgumentException e) {
+                    start = length;
+                }
+                if (start >= length || start > end) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                    return;
+                }
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentType(view.getMediaType().toString());
+        response.setContentLengthLong(count);
+        if (HttpMethod.HEAD.matches(request.getMethod()) || count == 0) {
+            return;
+        }
+
+        if (view.getCached() != null) {
+            view.getCached().transferTo(start, count, Channels.newChannel(response.getOutputStream()));
+            return;
+        }
+
+        if (view.getBuffer() != null) {
+            ByteBuffer slice = view.getBuffer().slice((int) start, (int) count);
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            while (slice.hasRemaining()) {
+                out.write(slice);
+            }
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, view.getFile().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(view.getFile(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, out);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+    }
+
+    public void write(MediaType mediaType, byte[] data, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        write(mediaType, data.length, out -> out.write(data), request, response);
+    }
+
+    public void write(MediaType mediaType, long length, BodyWriter body, HttpServletRequest request,
+                      HttpServletResponse response) throws IOException {
+        response.setContentType(mediaType.toString());
+        response.setContentLengthLong(length);
+        if (!HttpMethod.HEAD.matches(request.getMethod())) {
+            body.writeTo(response.getOutputStream());
+        }
+    }
+
+    public MultipartWriter multipart(HttpServletResponse response) throws IOException {
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        response.setContentType(new MediaType("multipart", "mixed", Map.of("boundary", boundary)).toString());
+        return new MultipartWriter(response.getOutputStream(), boundary);
+    }
+
+    public interface BodyWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    public static final class MultipartWriter implements AvatarBatchService.PartWriter {
+        private final OutputStream out;
+        private final String boundary;
+
+        private MultipartWriter(OutputStream out, String boundary) {
+            this.out = out;
+            this.boundary = boundary;
+        }
+
+        @Override
+        public void write(AvatarPart part) throws IOException {
+            StringBuilder headers = new StringBuilder()
+                    .append("--").append(boundary).append("\r\n")
+                    .append(HttpHeaders.CONTENT_TYPE).append(": ").append(part.getMediaType()).append("\r\n")
+                    .append(HttpHeaders.CONTENT_LENGTH).append(": ").append(part.getData().length).append("\r\n")
+                    .append(HttpHeaders.CONTENT_LOCATION).append(": /avatar/get/from-directory?studentID=")
+                    .append(part.getStudentId()).append("\r\n");
+            if (part.getETag() != null) {
+                headers.append(HttpHeaders.ETAG).append(": ").append(part.getETag()).append("\r\n");
+            }
+            headers.append("\r\n");
+            out.write(headers.toString().getBytes(StandardCharsets.US_ASCII));
+            out.write(part.getData());
+            out.write(CRLF);
+        }
+
+        public void finish() throws IOException {
+            out.write(("--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        }
+    }
+
+    private boolean ifRangeMatches(HttpServletRequest request, AvatarView view) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("W/")) {
+            return false;
+        }
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(view.getETag());
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == view.getLastModified() / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -1,27 +1,79 @@
 package ru.hogwarts.school.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
 import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.model.dto.NewStudent;
+import ru.hogwarts.school.model.dto.StudentBulkResult;
+import ru.hogwarts.school.model.dto.StudentImportStatus;
+import ru.hogwarts.school.model.dto.StudentPage;
+import ru.hogwarts.school.model.dto.StudentUpsertResult;
+import ru.hogwarts.school.service.StudentBulkService;
+import ru.hogwarts.school.service.StudentExportService;
+import ru.hogwarts.school.service.StudentImportService;
 import ru.hogwarts.school.service.StudentService;
 
+import java.io.IOException;
+import java.net.URI;
 import java.util.Collection;
 import java.util.List;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/student")
 public class StudentController {
 
     private final StudentService studentService;
-
-    public StudentController(StudentService studentService) {
+    private final StudentExportService exportService;
+    private final StudentBulkService bulkService;
+    private final StudentImportService importService;
+    private final boolean fullListAllowed;
+
+    public StudentController(StudentService studentService, StudentExportService exportService,
+                             StudentBulkService bulkService, StudentImportService importService,
+                             @Value("${student.list.allow-all:false}") boolean fullListAllowed) {
         this.studentService = studentService;
+        this.exportService = exportService;
+        this.bulkService = bulkService;
+        this.importService = importService;
+        this.fullListAllowed = fullListAllowed;
     }
 
     @GetMapping
-    public ResponseEntity<Collection<Student>> getAllStudents() {
-        return ResponseEntity.ok(studentService.getAll());
+    public ResponseEntity<Collection<Student>> getAllStudents(@RequestParam(value = "limit", required = false) Integer limit,
+                                                              @RequestParam(value = "after", required = false) String after,
+                                                              @RequestParam(value = "all", defaultValue = "false") boolean all) {
+        if (all && fullListAllowed) {
+            return ResponseEntity.ok(studentService.getAll());
+        }
+        StudentPage page = studentService.getStudentsAfter(after, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNext() != null) {
+            String next = UriComponentsBuilder.fromPath("/student")
+                    .queryParam("limit", page.getLimit())
+                    .queryParam("after", page.getNext())
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response.body(page.getStudents());
+    }
+
+    @GetMapping("export")
+    public void exportStudents(HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("students.ndjson")
+                .build()
+                .toString());
+        exportService.export(response.getOutputStream());
     }
 
     @GetMapping("{id}")
@@ -44,6 +96,30 @@ public class StudentController {
         return studentService.createStudent(student, facultyId);
     }
 
+    @PostMapping("bulk")
+    public ResponseEntity<StudentBulkResult> createStudents(@RequestBody List<NewStudent> students) {
+        StudentBulkResult result = bulkService.createStudents(students);
+        return result.isComplete() ? ResponseEntity.ok(result) : ResponseEntity.status(HttpStatus.CONFLICT).body(result);
+    }
+
+    @PutMapping("bulk")
+    public ResponseEntity<StudentUpsertResult> upsertStudents(@RequestBody List<NewStudent> students) {
+        return ResponseEntity.ok(bulkService.upsertStudents(students));
+    }
+
+    @PostMapping(value = "import", consumes = "text/csv")
+    public ResponseEntity<StudentImportStatus> importStudents(HttpServletRequest request) throws IOException {
+        StudentImportStatus job = importService.submit(request.getInputStream());
+        return ResponseEntity.accepted()
+                .location(URI.create("/student/import/" + job.getId()))
+                .body(job);
+    }
+
+    @GetMapping("import/{id}")
+    public ResponseEntity<StudentImportStatus> getImportJob(@PathVariable UUID id) {
+        return ResponseEntity.ok(importService.getJob(id));
+    }
+
     @PutMapping
     public ResponseEntity<Student> updateStudent(@RequestBody Student student, @RequestParam long facultyId) {
         Student s = studentService.updateStudent(student, facultyId);
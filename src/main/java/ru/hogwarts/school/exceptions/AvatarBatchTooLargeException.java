@@ -0,0 +1,11 @@
+package ru.hogwarts.school.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.BAD_REQUEST, reason = "Слишком много аватаров в одном запросе")
+public class AvatarBatchTooLargeException extends RuntimeException {
+    public AvatarBatchTooLargeException(String message) {
+        super(message);
+    }
+}
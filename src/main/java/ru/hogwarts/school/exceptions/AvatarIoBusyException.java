@@ -0,0 +1,11 @@
+package ru.hogwarts.school.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE, reason = "Сервер перегружен, повторите запрос позже")
+public class AvatarIoBusyException extends RuntimeException {
+    public AvatarIoBusyException(String message) {
+        super(message);
+    }
+}
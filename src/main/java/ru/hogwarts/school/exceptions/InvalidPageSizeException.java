@@ -0,0 +1,11 @@
+package ru.hogwarts.school.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.BAD_REQUEST, reason = "Некорректный размер страницы")
+public class InvalidPageSizeException extends IllegalArgumentException {
+    public InvalidPageSizeException(String message) {
+        super(message);
+    }
+}
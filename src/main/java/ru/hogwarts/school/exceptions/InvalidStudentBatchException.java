@@ -0,0 +1,11 @@
+package ru.hogwarts.school.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.BAD_REQUEST, reason = "Некорректный список студентов")
+public class InvalidStudentBatchException extends RuntimeException {
+    public InvalidStudentBatchException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package ru.hogwarts.school.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.BAD_REQUEST, reason = "Некорректный фрагмент загрузки")
+public class InvalidUploadChunkException extends RuntimeException {
+    public InvalidUploadChunkException(String message) {
+        super(message);
+    }
+}
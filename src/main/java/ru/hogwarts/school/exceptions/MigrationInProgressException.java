@@ -0,0 +1,11 @@
+package ru.hogwarts.school.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.CONFLICT, reason = "Миграция уже выполняется")
+public class MigrationInProgressException extends RuntimeException {
+    public MigrationInProgressException(String message) {
+        super(message);
+    }
+}
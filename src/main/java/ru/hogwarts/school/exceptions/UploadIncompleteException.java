@@ -0,0 +1,11 @@
+package ru.hogwarts.school.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.CONFLICT, reason = "Загрузка получена не полностью")
+public class UploadIncompleteException extends RuntimeException {
+    public UploadIncompleteException(String message) {
+        super(message);
+    }
+}
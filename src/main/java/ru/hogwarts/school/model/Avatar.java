@@ -3,20 +3,28 @@ package ru.hogwarts.school.model;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 
-import java.util.Arrays;
+import java.time.Instant;
 import java.util.Objects;
 
 @Entity
+@Table(indexes = @Index(name = "avatar_content_hash_index", columnList = "contentHash"))
 public class Avatar {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "avatar_seq")
+    @SequenceGenerator(name = "avatar_seq", sequenceName = "avatar_seq", allocationSize = 50)
     private long id;
 
     private String filePath;
     private long fileSize;
     private String mediaType;
+    private String contentHash;
+    private Instant updatedAt;
+
+    @Enumerated(EnumType.STRING)
+    private AvatarStorageMode storage;
 
     @JsonIgnore
+    @Basic(fetch = FetchType.LAZY)
     private byte[] data;
 
     @OneToOne
@@ -65,6 +73,30 @@ public class Avatar {
         this.mediaType = mediaType;
     }
 
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public AvatarStorageMode getStorage() {
+        return storage == null ? AvatarStorageMode.BOTH : storage;
+    }
+
+    public void setStorage(AvatarStorageMode storage) {
+        this.storage = storage;
+    }
+
     public byte[] getData() {
         return data;
     }
@@ -86,11 +118,11 @@ public class Avatar {
         if (this == object) return true;
         if (object == null || getClass() != object.getClass()) return false;
         Avatar avatar = (Avatar) object;
-        return id == avatar.id && fileSize == avatar.fileSize && Objects.equals(filePath, avatar.filePath) && Objects.equals(mediaType, avatar.mediaType) && Objects.deepEquals(data, avatar.data) && Objects.equals(student, avatar.student);
+        return id == avatar.id && fileSize == avatar.fileSize && Objects.equals(filePath, avatar.filePath) && Objects.equals(mediaType, avatar.mediaType) && Objects.equals(contentHash, avatar.contentHash) && Objects.equals(updatedAt, avatar.updatedAt) && storage == avatar.storage && Objects.equals(student, avatar.student);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, filePath, fileSize, mediaType, Arrays.hashCode(data), student);
+        return Objects.hash(id, filePath, fileSize, mediaType, contentHash, updatedAt, storage, student);
     }
 }
@@ -0,0 +1,22 @@
+package ru.hogwarts.school.model;
+
+public enum AvatarArchiveFormat {
+    ZIP("application/zip", "zip"),
+    TAR("application/x-tar", "tar");
+
+    private final String mediaType;
+    private final String extension;
+
+    AvatarArchiveFormat(String mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
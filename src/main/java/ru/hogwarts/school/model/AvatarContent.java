@@ -0,0 +1,84 @@
+package ru.hogwarts.school.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.util.Objects;
+
+@Entity
+public class AvatarContent implements Persistable<String> {
+    @Id
+    private String hash;
+
+    private long fileSize;
+    private int refCount;
+
+    @JsonIgnore
+    @Basic(fetch = FetchType.LAZY)
+    private byte[] data;
+
+    @Transient
+    private boolean isNew = true;
+
+    public AvatarContent(String hash, long fileSize, byte[] data) {
+        this.hash = hash;
+        this.fileSize = fileSize;
+        this.data = data;
+        this.refCount = 1;
+    }
+
+    public AvatarContent() {
+    }
+
+    @JsonIgnore
+    @Override
+    public String getId() {
+        return hash;
+    }
+
+    @JsonIgnore
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public int getRefCount() {
+        return refCount;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public void setData(byte[] data) {
+        this.data = data;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) return true;
+        if (object == null || getClass() != object.getClass()) return false;
+        AvatarContent content = (AvatarContent) object;
+        return Objects.equals(hash, content.hash);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(hash);
+    }
+}
@@ -0,0 +1,15 @@
+package ru.hogwarts.school.model;
+
+public enum AvatarStorageMode {
+    DISK,
+    DB,
+    BOTH;
+
+    public boolean storesOnDisk() {
+        return this != DB;
+    }
+
+    public boolean storesInDb() {
+        return this != DISK;
+    }
+}
@@ -0,0 +1,60 @@
+package ru.hogwarts.school.model.dto;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+public class AvatarChunkedUploadStatus {
+    private final UUID id;
+
+    private final long studentId;
+
+    private final long size;
+
+    private final int chunkSize;
+
+    private final int chunkCount;
+
+    private final List<Integer> missingChunks;
+
+    private final Instant expiresAt;
+
+    public AvatarChunkedUploadStatus(UUID id, long studentId, long size, int chunkSize, int chunkCount,
+                                     List<Integer> missingChunks, Instant expiresAt) {
+        this.id = id;
+        this.studentId = studentId;
+        this.size = size;
+        this.chunkSize = chunkSize;
+        this.chunkCount = chunkCount;
+        this.missingChunks = missingChunks;
+        this.expiresAt = expiresAt;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public long getStudentId() {
+        return studentId;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    public List<Integer> getMissingChunks() {
+        return missingChunks;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+}
@@ -0,0 +1,27 @@
+package ru.hogwarts.school.model.dto;
+
+import org.springframework.http.MediaType;
+
+public class AvatarImageHeader {
+    private final MediaType mediaType;
+    private final int width;
+    private final int height;
+
+    public AvatarImageHeader(MediaType mediaType, int width, int height) {
+        this.mediaType = mediaType;
+        this.width = width;
+        this.height = height;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
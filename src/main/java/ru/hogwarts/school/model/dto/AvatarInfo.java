@@ -0,0 +1,67 @@
+package ru.hogwarts.school.model.dto;
+
+import ru.hogwarts.school.model.AvatarStorageMode;
+
+import java.time.Instant;
+
+public class AvatarInfo {
+    private final long id;
+
+    private final long studentId;
+
+    private final String filePath;
+
+    private final long fileSize;
+
+    private final String mediaType;
+
+    private final String contentHash;
+
+    private final Instant updatedAt;
+
+    private final AvatarStorageMode storage;
+
+    public AvatarInfo(long id, long studentId, String filePath, long fileSize, String mediaType,
+                      String contentHash, Instant updatedAt, AvatarStorageMode storage) {
+        this.id = id;
+        this.studentId = studentId;
+        this.filePath = filePath;
+        this.fileSize = fileSize;
+        this.mediaType = mediaType;
+        this.contentHash = contentHash;
+        this.updatedAt = updatedAt;
+        this.storage = storage == null ? AvatarStorageMode.BOTH : storage;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getStudentId() {
+        return studentId;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public AvatarStorageMode getStorage() {
+        return storage;
+    }
+}
@@ -0,0 +1,43 @@
+package ru.hogwarts.school.model.dto;
+
+import ru.hogwarts.school.model.AvatarStorageMode;
+
+public class AvatarMigrationStatus {
+    private final AvatarStorageMode target;
+
+    private final boolean running;
+
+    private final long migrated;
+
+    private final long failed;
+
+    private final long lastId;
+
+    public AvatarMigrationStatus(AvatarStorageMode target, boolean running, long migrated, long failed, long lastId) {
+        this.target = target;
+        this.running = running;
+        this.migrated = migrated;
+        this.failed = failed;
+        this.lastId = lastId;
+    }
+
+    public AvatarStorageMode getTarget() {
+        return target;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public long getMigrated() {
+        return migrated;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getLastId() {
+        return lastId;
+    }
+}
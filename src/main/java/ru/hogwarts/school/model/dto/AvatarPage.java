@@ -0,0 +1,22 @@
+package ru.hogwarts.school.model.dto;
+
+import java.util.List;
+
+public class AvatarPage {
+    private final List<AvatarInfo> avatars;
+
+    private final String next;
+
+    public AvatarPage(List<AvatarInfo> avatars, String next) {
+        this.avatars = avatars;
+        this.next = next;
+    }
+
+    public List<AvatarInfo> getAvatars() {
+        return avatars;
+    }
+
+    public String getNext() {
+        return next;
+    }
+}
@@ -0,0 +1,33 @@
+package ru.hogwarts.school.model.dto;
+
+import org.springframework.http.MediaType;
+
+public class AvatarPart {
+    private final long studentId;
+    private final MediaType mediaType;
+    private final String eTag;
+    private final byte[] data;
+
+    public AvatarPart(long studentId, MediaType mediaType, String eTag, byte[] data) {
+        this.studentId = studentId;
+        this.mediaType = mediaType;
+        this.eTag = eTag;
+        this.data = data;
+    }
+
+    public long getStudentId() {
+        return studentId;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+}
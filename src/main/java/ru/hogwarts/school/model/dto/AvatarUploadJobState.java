@@ -0,0 +1,8 @@
+package ru.hogwarts.school.model.dto;
+
+public enum AvatarUploadJobState {
+    QUEUED,
+    RUNNING,
+    DONE,
+    FAILED
+}
@@ -0,0 +1,52 @@
+package ru.hogwarts.school.model.dto;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public class AvatarUploadJobStatus {
+    private final UUID id;
+
+    private final long studentId;
+
+    private final AvatarUploadJobState state;
+
+    private final Long avatarId;
+
+    private final String error;
+
+    private final Instant submittedAt;
+
+    public AvatarUploadJobStatus(UUID id, long studentId, AvatarUploadJobState state, Long avatarId, String error,
+                                 Instant submittedAt) {
+        this.id = id;
+        this.studentId = studentId;
+        this.state = state;
+        this.avatarId = avatarId;
+        this.error = error;
+        this.submittedAt = submittedAt;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public long getStudentId() {
+        return studentId;
+    }
+
+    public AvatarUploadJobState getState() {
+        return state;
+    }
+
+    public Long getAvatarId() {
+        return avatarId;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public Instant getSubmittedAt() {
+        return submittedAt;
+    }
+}
@@ -0,0 +1,41 @@
+package ru.hogwarts.school.model.dto;
+
+public class AvatarUploadQueueStatus {
+    private final int queued;
+
+    private final int capacity;
+
+    private final int active;
+
+    private final long completed;
+
+    private final long failed;
+
+    public AvatarUploadQueueStatus(int queued, int capacity, int active, long completed, long failed) {
+        this.queued = queued;
+        this.capacity = capacity;
+        this.active = active;
+        this.completed = completed;
+        this.failed = failed;
+    }
+
+    public int getQueued() {
+        return queued;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getActive() {
+        return active;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+}
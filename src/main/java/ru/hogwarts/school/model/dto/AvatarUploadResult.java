@@ -0,0 +1,46 @@
+package ru.hogwarts.school.model.dto;
+
+public class AvatarUploadResult {
+    private final String name;
+
+    private final Long studentId;
+
+    private final Long avatarId;
+
+    private final String error;
+
+    public AvatarUploadResult(String name, Long studentId, Long avatarId, String error) {
+        this.name = name;
+        this.studentId = studentId;
+        this.avatarId = avatarId;
+        this.error = error;
+    }
+
+    public static AvatarUploadResult uploaded(String name, long studentId, long avatarId) {
+        return new AvatarUploadResult(name, studentId, avatarId, null);
+    }
+
+    public static AvatarUploadResult failed(String name, Long studentId, String error) {
+        return new AvatarUploadResult(name, studentId, null, error);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Long getStudentId() {
+        return studentId;
+    }
+
+    public Long getAvatarId() {
+        return avatarId;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public boolean isUploaded() {
+        return error == null;
+    }
+}
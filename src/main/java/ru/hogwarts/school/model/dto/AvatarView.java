@@ -2,21 +2,76 @@ package ru.hogwarts.school.model.dto;
 
 import org.springframework.http.MediaType;
 
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
 public class AvatarView {
     private final MediaType mediaType;
 
-    private final byte[] content;
+    private final Path file;
+
+    private final long length;
+
+    private final long lastModified;
+
+    private final String contentHash;
+
+    private final CachedAvatarContent cached;
+
+    private final ByteBuffer buffer;
+
+    public AvatarView(MediaType mediaType, Path file, long length, long lastModified, String contentHash) {
+        this(mediaType, file, null, null, length, lastModified, contentHash);
+    }
+
+    public AvatarView(MediaType mediaType, CachedAvatarContent cached, long lastModified, String contentHash) {
+        this(mediaType, null, cached, null, cached.getLength(), lastModified, contentHash);
+    }
+
+    public AvatarView(MediaType mediaType, ByteBuffer buffer, long lastModified, String contentHash) {
+        this(mediaType, null, null, buffer, buffer.remaining(), lastModified, contentHash);
+    }
 
-    public AvatarView(MediaType mediaType, byte[] bytes) {
+    private AvatarView(MediaType mediaType, Path file, CachedAvatarContent cached, ByteBuffer buffer, long length,
+                       long lastModified, String contentHash) {
         this.mediaType = mediaType;
-        this.content = bytes;
+        this.file = file;
+        this.cached = cached;
+        this.buffer = buffer;
+        this.length = length;
+        this.lastModified = lastModified;
+        this.contentHash = contentHash;
     }
 
     public MediaType getMediaType() {
         return mediaType;
     }
 
-    public byte[] getContent() {
-        return content;
+    public Path getFile() {
+        return file;
+    }
+
+    public CachedAvatarContent getCached() {
+        return cached;
+    }
+
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public String getETag() {
+        return contentHash == null ? null : "\"" + contentHash + "\"";
     }
 }
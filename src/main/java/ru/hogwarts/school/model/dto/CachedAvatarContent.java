@@ -0,0 +1,13 @@
+package ru.hogwarts.school.model.dto;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+public interface CachedAvatarContent extends AutoCloseable {
+    long getLength();
+
+    void transferTo(long position, long count, WritableByteChannel out) throws IOException;
+
+    @Override
+    void close();
+}
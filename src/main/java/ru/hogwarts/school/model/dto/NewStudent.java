@@ -0,0 +1,27 @@
+package ru.hogwarts.school.model.dto;
+
+public class NewStudent {
+    private final String name;
+
+    private final int age;
+
+    private final long facultyId;
+
+    public NewStudent(String name, int age, long facultyId) {
+        this.name = name;
+        this.age = age;
+        this.facultyId = facultyId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getAge() {
+        return age;
+    }
+
+    public long getFacultyId() {
+        return facultyId;
+    }
+}
@@ -0,0 +1,34 @@
+package ru.hogwarts.school.model.dto;
+
+public class SpooledAvatar {
+    private final String name;
+
+    private final long studentId;
+
+    private final String mediaType;
+
+    private final StoredAvatarFile file;
+
+    public SpooledAvatar(String name, long studentId, String mediaType, StoredAvatarFile file) {
+        this.name = name;
+        this.studentId = studentId;
+        this.mediaType = mediaType;
+        this.file = file;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getStudentId() {
+        return studentId;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public StoredAvatarFile getFile() {
+        return file;
+    }
+}
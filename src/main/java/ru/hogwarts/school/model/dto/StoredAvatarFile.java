@@ -0,0 +1,40 @@
+package ru.hogwarts.school.model.dto;
+
+import java.nio.file.Path;
+
+public class StoredAvatarFile {
+    private final Path path;
+
+    private final long size;
+
+    private final String contentHash;
+
+    private final String mediaType;
+
+    public StoredAvatarFile(Path path, long size, String contentHash) {
+        this(path, size, contentHash, null);
+    }
+
+    public StoredAvatarFile(Path path, long size, String contentHash, String mediaType) {
+        this.path = path;
+        this.size = size;
+        this.contentHash = contentHash;
+        this.mediaType = mediaType;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+}
@@ -0,0 +1,56 @@
+package ru.hogwarts.school.model.dto;
+
+public class StudentBulkResult {
+    private final int created;
+
+    private final int chunks;
+
+    private final long elapsedMillis;
+
+    private final long rowsPerSecond;
+
+    private final Integer failedAt;
+
+    private final String error;
+
+    public StudentBulkResult(int created, int chunks, long elapsedMillis, long rowsPerSecond) {
+        this(created, chunks, elapsedMillis, rowsPerSecond, null, null);
+    }
+
+    public StudentBulkResult(int created, int chunks, long elapsedMillis, long rowsPerSecond, Integer failedAt, String error) {
+        this.created = created;
+        this.chunks = chunks;
+        this.elapsedMillis = elapsedMillis;
+        this.rowsPerSecond = rowsPerSecond;
+        this.failedAt = failedAt;
+        this.error = error;
+    }
+
+    public int getCreated() {
+        return created;
+    }
+
+    public int getChunks() {
+        return chunks;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public long getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public Integer getFailedAt() {
+        return failedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public boolean isComplete() {
+        return failedAt == null;
+    }
+}
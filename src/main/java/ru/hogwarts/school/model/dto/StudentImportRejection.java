@@ -0,0 +1,20 @@
+package ru.hogwarts.school.model.dto;
+
+public class StudentImportRejection {
+    private final long line;
+
+    private final String error;
+
+    public StudentImportRejection(long line, String error) {
+        this.line = line;
+        this.error = error;
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,8 @@
+package ru.hogwarts.school.model.dto;
+
+public enum StudentImportState {
+    QUEUED,
+    RUNNING,
+    DONE,
+    FAILED
+}
@@ -0,0 +1,82 @@
+package ru.hogwarts.school.model.dto;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+public class StudentImportStatus {
+    private final UUID id;
+
+    private final StudentImportState state;
+
+    private final long rowsRead;
+
+    private final long imported;
+
+    private final long rejected;
+
+    private final long rowsPerSecond;
+
+    private final List<StudentImportRejection> rejections;
+
+    private final String error;
+
+    private final Instant submittedAt;
+
+    private final Instant finishedAt;
+
+    public StudentImportStatus(UUID id, StudentImportState state, long rowsRead, long imported, long rejected,
+                               long rowsPerSecond, List<StudentImportRejection> rejections, String error,
+                               Instant submittedAt, Instant finishedAt) {
+        this.id = id;
+        this.state = state;
+        this.rowsRead = rowsRead;
+        this.imported = imported;
+        this.rejected = rejected;
+        this.rowsPerSecond = rowsPerSecond;
+        this.rejections = rejections;
+        this.error = error;
+        this.submittedAt = submittedAt;
+        this.finishedAt = finishedAt;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public StudentImportState getState() {
+        return state;
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public long getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public List<StudentImportRejection> getRejections() {
+        return rejections;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public Instant getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+}
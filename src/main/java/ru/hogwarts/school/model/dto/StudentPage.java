@@ -0,0 +1,31 @@
+package ru.hogwarts.school.model.dto;
+
+import ru.hogwarts.school.model.Student;
+
+import java.util.List;
+
+public class StudentPage {
+    private final List<Student> students;
+
+    private final String next;
+
+    private final int limit;
+
+    public StudentPage(List<Student> students, String next, int limit) {
+        this.students = students;
+        this.next = next;
+        this.limit = limit;
+    }
+
+    public List<Student> getStudents() {
+        return students;
+    }
+
+    public String getNext() {
+        return next;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+}
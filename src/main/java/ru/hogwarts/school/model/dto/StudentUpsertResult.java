@@ -0,0 +1,41 @@
+package ru.hogwarts.school.model.dto;
+
+public class StudentUpsertResult {
+    private final int inserted;
+
+    private final int updated;
+
+    private final int unchanged;
+
+    private final int batches;
+
+    private final long elapsedMillis;
+
+    public StudentUpsertResult(int inserted, int updated, int unchanged, int batches, long elapsedMillis) {
+        this.inserted = inserted;
+        this.updated = updated;
+        this.unchanged = unchanged;
+        this.batches = batches;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public int getInserted() {
+        return inserted;
+    }
+
+    public int getUpdated() {
+        return updated;
+    }
+
+    public int getUnchanged() {
+        return unchanged;
+    }
+
+    public int getBatches() {
+        return batches;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+}
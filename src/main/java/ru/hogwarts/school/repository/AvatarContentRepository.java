@@ -0,0 +1,23 @@
+package ru.hogwarts.school.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import ru.hogwarts.school.model.AvatarContent;
+
+public interface AvatarContentRepository extends JpaRepository<AvatarContent, String> {
+    @Modifying
+    @Query("UPDATE AvatarContent c SET c.refCount = c.refCount + 1 WHERE c.hash = :hash")
+    int retain(String hash);
+
+    @Modifying
+    @Query("UPDATE AvatarContent c SET c.refCount = c.refCount - 1 WHERE c.hash = :hash")
+    int release(String hash);
+
+    @Modifying
+    @Query("DELETE FROM AvatarContent c WHERE c.hash = :hash AND c.refCount <= 0")
+    int deleteIfUnreferenced(String hash);
+
+    @Query("SELECT COUNT(c) > 0 FROM AvatarContent c WHERE c.hash = :hash AND c.data IS NOT NULL")
+    boolean hasData(String hash);
+}
@@ -1,9 +1,65 @@
 package ru.hogwarts.school.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.model.AvatarStorageMode;
+import ru.hogwarts.school.model.dto.AvatarInfo;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 
 public interface AvatarRepository extends JpaRepository<Avatar, Long> {
     Avatar findByStudentId(Long studentId);
+
+    List<Avatar> findAllByStudentIdIn(Collection<Long> studentIds);
+
+    boolean existsByContentHashAndFilePathIsNotNull(String contentHash);
+
+    @Query("SELECT DISTINCT a.contentHash FROM Avatar a WHERE a.contentHash IN :hashes AND a.filePath IS NOT NULL")
+    Set<String> findContentHashesWithFile(Collection<String> hashes);
+
+    @Query("SELECT a.filePath FROM Avatar a WHERE a.filePath IN :paths")
+    Set<String> findFilePathsIn(Collection<String> paths);
+
+    @Query("SELECT COUNT(a) > 0 FROM Avatar a WHERE a.contentHash = :contentHash AND a.id <> :id " +
+            "AND (a.storage IS NULL OR a.storage <> :excluded)")
+    boolean existsOtherByContentHashAndStorageNot(String contentHash, long id, AvatarStorageMode excluded);
+
+    @Query("SELECT new ru.hogwarts.school.model.dto.AvatarInfo(a.id, a.student.id, a.filePath, a.fileSize, a.mediaType, a.contentHash, a.updatedAt, a.storage) " +
+            "FROM Avatar a WHERE a.student.id = :studentId")
+    AvatarInfo findInfoByStudentId(Long studentId);
+
+    @Query("SELECT new ru.hogwarts.school.model.dto.AvatarInfo(a.id, a.student.id, a.filePath, a.fileSize, a.mediaType, a.contentHash, a.updatedAt, a.storage) " +
+            "FROM Avatar a WHERE a.student.id IN :studentIds")
+    List<AvatarInfo> findInfoByStudentIdIn(Collection<Long> studentIds);
+
+    @Query("SELECT new ru.hogwarts.school.model.dto.AvatarInfo(a.id, a.student.id, a.filePath, a.fileSize, a.mediaType, a.contentHash, a.updatedAt, a.storage) " +
+            "FROM Avatar a ORDER BY a.id")
+    List<AvatarInfo> findAllInfo(Pageable pageable);
+
+    @Query("SELECT new ru.hogwarts.school.model.dto.AvatarInfo(a.id, a.student.id, a.filePath, a.fileSize, a.mediaType, a.contentHash, a.updatedAt, a.storage) " +
+            "FROM Avatar a WHERE a.id > :afterId ORDER BY a.id")
+    List<AvatarInfo> findInfoAfter(long afterId, Limit limit);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new ru.hogwarts.school.model.dto.AvatarInfo(a.id, a.student.id, a.filePath, a.fileSize, a.mediaType, a.contentHash, a.updatedAt, a.storage) " +
+            "FROM Avatar a ORDER BY a.id")
+    Stream<AvatarInfo> streamAllInfo();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new ru.hogwarts.school.model.dto.AvatarInfo(a.id, a.student.id, a.filePath, a.fileSize, a.mediaType, a.contentHash, a.updatedAt, a.storage) " +
+            "FROM Avatar a WHERE a.student.faculty.id = :facultyId ORDER BY a.id")
+    Stream<AvatarInfo> streamInfoByFacultyId(long facultyId);
+
+    @Query("SELECT a.id FROM Avatar a WHERE a.id > :afterId AND (a.storage IS NULL OR a.storage <> :target) ORDER BY a.id")
+    List<Long> findIdsToMigrate(long afterId, AvatarStorageMode target, Pageable pageable);
 }
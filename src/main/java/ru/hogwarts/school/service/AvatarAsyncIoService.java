@@ -0,0 +1,118 @@
+package ru.hogwarts.school.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import ru.hogwarts.school.exceptions.AvatarIoBusyException;
+import ru.hogwarts.school.model.dto.AvatarInfo;
+import ru.hogwarts.school.model.dto.AvatarView;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+@Service
+public class AvatarAsyncIoService {
+    private final AvatarService avatarService;
+    private final ThreadPoolExecutor executor;
+
+    Logger logger = LoggerFactory.getLogger(AvatarAsyncIoService.class);
+
+    public AvatarAsyncIoService(AvatarService avatarService,
+                                @Value("${avatar.io.threads:8}") int threads,
+                                @Value("${avatar.io.queue-capacity:500}") int capacity) {
+        this.avatarService = avatarService;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(capacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "avatar-io-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public CompletableFuture<Long> uploadAvatar(long studentId, MultipartFile file) {
+        logger.info("Method uploadAvatar was invoked");
+        return submit(() -> {
+            try {
+                return avatarService.uploadAvatar(studentId, file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    public CompletableFuture<AvatarView> resolveAvatar(AvatarInfo info, Integer size) {
+        logger.info("Method resolveAvatar was invoked");
+        return submit(() -> {
+            AvatarView rendition = size == null ? null : avatarService.getRendition(info, size);
+            if (rendition != null) {
+                return rendition;
+            }
+            AvatarView cached = avatarService.getCachedAvatar(info, false);
+            if (cached != null || info.getFilePath() == null) {
+                return cached;
+            }
+            return avatarService.getAvatarFile(info);
+        });
+    }
+
+    public void transfer(AvatarView view, OutputStream out) throws IOException {
+        if (view.getCached() != null) {
+            try {
+                view.getCached().transferTo(0, view.getLength(), Channels.newChannel(out));
+            } finally {
+                view.getCached().close();
+            }
+        } else if (view.getBuffer() != null) {
+            Channels.newChannel(out).write(view.getBuffer().duplicate());
+        } else {
+            WritableByteChannel target = Channels.newChannel(out);
+            try (FileChannel channel = FileChannel.open(view.getFile(), StandardOpenOption.READ)) {
+                for (long position = 0; position < view.getLength(); ) {
+                    long sent = channel.transferTo(position, view.getLength() - position, target);
+                    if (sent <= 0) {
+                        throw new EOFException("Unexpected end of file " + view.getFile());
+                    }
+                    position += sent;
+                }
+            }
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(busy());
+        }
+    }
+
+    private AvatarIoBusyException busy() {
+        logger.warn("Avatar I/O queue is full");
+        return new AvatarIoBusyException("Очередь операций с файлами аватаров переполнена");
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,188 @@
+package ru.hogwarts.school.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import ru.hogwarts.school.exceptions.AvatarBatchTooLargeException;
+import ru.hogwarts.school.exceptions.AvatarNotFoundException;
+import ru.hogwarts.school.exceptions.ImageReadFailureException;
+import ru.hogwarts.school.model.dto.AvatarInfo;
+import ru.hogwarts.school.model.dto.AvatarPart;
+import ru.hogwarts.school.model.dto.AvatarView;
+import ru.hogwarts.school.repository.AvatarRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+public class AvatarBatchService {
+    private final AvatarRepository avatarRepository;
+    private final AvatarService avatarService;
+    private final AvatarBlobStreamer blobStreamer;
+    private final int maxSize;
+    private final int window;
+    private final ThreadPoolExecutor executor;
+
+    Logger logger = LoggerFactory.getLogger(AvatarBatchService.class);
+
+    public AvatarBatchService(AvatarRepository avatarRepository, AvatarService avatarService,
+                              AvatarBlobStreamer blobStreamer,
+                              @Value("${avatar.batch.threads:4}") int threads,
+                              @Value("${avatar.batch.max-size:200}") int maxSize) {
+        this.avatarRepository = avatarRepository;
+        this.avatarService = avatarService;
+        this.blobStreamer = blobStreamer;
+        this.maxSize = maxSize;
+        this.window = threads * 2;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * 4),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "avatar-batch-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public int fetch(Collection<Long> studentIds, Integer size, PartWriter writer) throws IOException {
+        logger.info("Method fetch was invoked");
+        Set<Long> ids = new LinkedHashSet<>(studentIds);
+        if (ids.size() > maxSize) {
+            logger.error("Requested {} avatars, the limit is {}", ids.size(), maxSize);
+            throw new AvatarBatchTooLargeException("Можно запросить не более " + maxSize + " аватаров за раз");
+        }
+        Map<Long, AvatarInfo> avatars = avatarRepository.findInfoByStudentIdIn(ids).stream()
+                .collect(Collectors.toMap(AvatarInfo::getStudentId, Function.identity()));
+
+        Deque<Future<AvatarPart>> pending = new ArrayDeque<>();
+        int written = 0;
+        try {
+            for (Long id : ids) {
+                AvatarInfo info = avatars.get(id);
+                if (info == null) {
+                    continue;
+                }
+                pending.add(executor.submit(() -> load(info, size)));
+                if (pending.size() >= window && write(pending.poll(), writer)) {
+                    written++;
+                }
+            }
+            while (!pending.isEmpty()) {
+                if (write(pending.poll(), writer)) {
+                    written++;
+                }
+            }
+        } finally {
+            pending.forEach(future -> future.cancel(true));
+        }
+        logger.debug("Fetched {} of {} requested avatars", written, ids.size());
+        return written;
+    }
+
+    private boolean write(Future<AvatarPart> future, PartWriter writer) throws IOException {
+        AvatarPart part;
+        try {
+            part = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Avatar batch fetch was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException cause) {
+                throw cause.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IOException(e.getCause());
+        }
+        if (part == null) {
+            return false;
+        }
+        writer.write(part);
+        return true;
+    }
+
+    private AvatarPart load(AvatarInfo info, Integer size) {
+        try {
+            if (size != null) {
+                AvatarView rendition = avatarService.getRendition(info, size);
+                if (rendition != null) {
+                    return new AvatarPart(info.getStudentId(), rendition.getMediaType(), rendition.getETag(),
+                            Files.readAllBytes(rendition.getFile()));
+                }
+            }
+            MediaType mediaType = MediaType.parseMediaType(info.getMediaType());
+            String eTag = info.getContentHash() == null ? null : "\"" + info.getContentHash() + "\"";
+            AvatarView cached = avatarService.getCachedAvatar(info, false);
+            if (cached != null) {
+                try {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream((int) cached.getLength());
+                    cached.getCached().transferTo(0, cached.getLength(), Channels.newChannel(out));
+                    return new AvatarPart(info.getStudentId(), mediaType, eTag, out.toByteArray());
+                } finally {
+                    cached.getCached().close();
+                }
+            }
+            if (info.getFilePath() != null) {
+                try {
+                    return new AvatarPart(info.getStudentId(), mediaType, eTag, read(avatarService.getAvatarFile(info)));
+                } catch (AvatarNotFoundException | ImageReadFailureException e) {
+                    if (info.getStorage() == null || !info.getStorage().storesInDb()) {
+                        logger.warn("Skipping avatar with id: {}, its file is missing", info.getId());
+                        return null;
+                    }
+                }
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream((int) info.getFileSize());
+            blobStreamer.stream(info, out);
+            return new AvatarPart(info.getStudentId(), mediaType, eTag, out.toByteArray());
+        } catch (AvatarNotFoundException e) {
+            logger.warn("Skipping avatar with id: {}, its content is missing", info.getId());
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] read(AvatarView view) throws IOException {
+        if (view.getBuffer() != null) {
+            ByteBuffer buffer = view.getBuffer().duplicate();
+            byte[] data = new byte[buffer.remaining()];
+            buffer.get(data);
+            return data;
+        }
+        return Files.readAllBytes(view.getFile());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public interface PartWriter {
+        void write(AvatarPart part) throws IOException;
+    }
+}
@@ -0,0 +1,64 @@
+package ru.hogwarts.school.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.hogwarts.school.exceptions.AvatarNotFoundException;
+import ru.hogwarts.school.model.dto.AvatarInfo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+@Service
+public class AvatarBlobStreamer {
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    Logger logger = LoggerFactory.getLogger(AvatarBlobStreamer.class);
+
+    public AvatarBlobStreamer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Transactional(readOnly = true)
+    public void stream(AvatarInfo info, OutputStream out) throws IOException {
+        logger.info("Method stream was invoked");
+        if (info.getContentHash() != null
+                && copy("SELECT data FROM avatar_content WHERE hash = ? AND data IS NOT NULL", info.getContentHash(), out)) {
+            return;
+        }
+        logger.debug("Streaming image data of avatar with id: {}", info.getId());
+        if (!copy("SELECT data FROM avatar WHERE id = ? AND data IS NOT NULL", info.getId(), out)) {
+            logger.error("Avatar with id: {} is not stored in db", info.getId());
+            throw new AvatarNotFoundException("Аватар не найден");
+        }
+    }
+
+    private boolean copy(String sql, Object key, OutputStream out) throws IOException {
+        try {
+            Boolean found = jdbcTemplate.query(sql, resultSet -> {
+                if (!resultSet.next()) {
+                    return false;
+                }
+                byte[] chunk = new byte[CHUNK_SIZE];
+                try (InputStream in = resultSet.getBinaryStream(1)) {
+                    int read;
+                    while ((read = in.read(chunk)) != -1) {
+                        out.write(chunk, 0, read);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return true;
+            }, key);
+            return Boolean.TRUE.equals(found);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
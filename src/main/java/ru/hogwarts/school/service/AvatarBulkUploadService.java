@@ -0,0 +1,203 @@
+package ru.hogwarts.school.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+import ru.hogwarts.school.exceptions.ImageTooLargeException;
+import ru.hogwarts.school.exceptions.InvalidImageException;
+import ru.hogwarts.school.model.dto.AvatarUploadResult;
+import ru.hogwarts.school.model.dto.SpooledAvatar;
+import ru.hogwarts.school.model.dto.StoredAvatarFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+@Service
+public class AvatarBulkUploadService {
+    private final AvatarService avatarService;
+    private final long maxEntrySize;
+    private final ThreadPoolExecutor executor;
+
+    Logger logger = LoggerFactory.getLogger(AvatarBulkUploadService.class);
+
+    public AvatarBulkUploadService(AvatarService avatarService,
+                                   @Value("${avatar.bulk.threads:4}") int threads,
+                                   @Value("${avatar.bulk.max-entry-size:10MB}") DataSize maxEntrySize) {
+        this.avatarService = avatarService;
+        this.maxEntrySize = maxEntrySize.toBytes();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * 2),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "avatar-bulk-upload-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public List<AvatarUploadResult> uploadFiles(List<MultipartFile> files) throws IOException {
+        logger.info("Method uploadFiles was invoked");
+        List<PendingUpload> pending = new ArrayList<>();
+        for (MultipartFile file : files) {
+            String mediaType = file.getContentType() != null ? file.getContentType() : mediaTypeOf(file.getOriginalFilename());
+            pending.add(submit(file.getOriginalFilename(), mediaType, file::getInputStream));
+        }
+        return complete(pending);
+    }
+
+    public List<AvatarUploadResult> uploadArchive(InputStream archive) throws IOException {
+        logger.info("Method uploadArchive was invoked");
+        List<PendingUpload> pending = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(archive)) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                String name = entry.getName();
+                byte[] data = zip.readNBytes((int) Math.min(Integer.MAX_VALUE - 8, maxEntrySize + 1));
+                if (data.length > maxEntrySize) {
+                    logger.warn("Archive entry {} exceeds {} bytes", name, maxEntrySize);
+                    pending.add(new PendingUpload(name, studentIdOf(name), null, null,
+                            "Размер файла превышает " + maxEntrySize + " байт"));
+                    zip.transferTo(OutputStream.nullOutputStream());
+                    continue;
+                }
+                pending.add(submit(name, mediaTypeOf(name), () -> new ByteArrayInputStream(data)));
+            }
+        } catch (IOException | RuntimeException e) {
+            discard(pending);
+            throw e;
+        }
+        return complete(pending);
+    }
+
+    private PendingUpload submit(String name, String mediaType, ContentSource source) {
+        Long studentId = studentIdOf(name);
+        if (studentId == null) {
+            return new PendingUpload(name, null, null, null, "Имя файла должно начинаться с id студента");
+        }
+        Future<StoredAvatarFile> spooled = executor.submit(() -> {
+            try (InputStream in = source.open()) {
+                return avatarService.spoolAvatarFile(in);
+            }
+        });
+        return new PendingUpload(name, studentId, mediaType, spooled, null);
+    }
+
+    private List<AvatarUploadResult> complete(List<PendingUpload> pending) throws IOException {
+        List<SpooledAvatar> spooled = new ArrayList<>();
+        for (PendingUpload upload : pending) {
+            if (upload.error != null) {
+                continue;
+            }
+            try {
+                spooled.add(new SpooledAvatar(upload.name, upload.studentId, upload.mediaType, upload.file.get()));
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof InvalidImageException || e.getCause() instanceof ImageTooLargeException) {
+                    logger.warn("Rejected avatar {}: {}", upload.name, e.getCause().getMessage());
+                    upload.error = e.getCause().getMessage();
+                    continue;
+                }
+                logger.error("Failed to spool avatar {}", upload.name, e.getCause());
+                upload.error = "Не удалось сохранить файл";
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                discard(pending);
+                throw new IOException("Bulk avatar upload was interrupted", e);
+            }
+        }
+
+        List<AvatarUploadResult> saved = spooled.isEmpty() ? List.of() : avatarService.saveAvatars(spooled);
+        logger.info("Bulk upload stored {} of {} avatars", saved.stream().filter(AvatarUploadResult::isUploaded).count(),
+                pending.size());
+
+        List<AvatarUploadResult> results = new ArrayList<>(pending.size());
+        Iterator<AvatarUploadResult> savedResults = saved.iterator();
+        for (PendingUpload upload : pending) {
+            results.add(upload.error == null
+                    ? savedResults.next()
+                    : AvatarUploadResult.failed(upload.name, upload.studentId, upload.error));
+        }
+        return results;
+    }
+
+    private void discard(List<PendingUpload> pending) {
+        for (PendingUpload upload : pending) {
+            if (upload.file == null) {
+                continue;
+            }
+            try {
+                avatarService.deleteQuietly(upload.file.get().getPath());
+            } catch (ExecutionException e) {
+                logger.debug("Avatar {} was not spooled", upload.name);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private Long studentIdOf(String name) {
+        if (name == null) {
+            return null;
+        }
+        String fileName = name.substring(name.lastIndexOf('/') + 1);
+        int extension = fileName.indexOf('.');
+        try {
+            return Long.parseLong(extension < 0 ? fileName : fileName.substring(0, extension));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private String mediaTypeOf(String name) {
+        return MediaTypeFactory.getMediaType(name).orElse(MediaType.APPLICATION_OCTET_STREAM).toString();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private interface ContentSource {
+        InputStream open() throws IOException;
+    }
+
+    private static final class PendingUpload {
+        private final String name;
+        private final Long studentId;
+        private final String mediaType;
+        private final Future<StoredAvatarFile> file;
+        private String error;
+
+        private PendingUpload(String name, Long studentId, String mediaType, Future<StoredAvatarFile> file, String error) {
+            this.name = name;
+            this.studentId = studentId;
+            this.mediaType = mediaType;
+            this.file = file;
+            this.error = error;
+        }
+    }
+}
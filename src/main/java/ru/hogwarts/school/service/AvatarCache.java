@@ -0,0 +1,348 @@
+package ru.hogwarts.school.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import ru.hogwarts.school.model.dto.CachedAvatarContent;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class AvatarCache implements MeterBinder {
+    private static final int MAX_SLAB_SIZE = 16 * 1024 * 1024;
+
+    private final long maxBytes;
+    private final int pageSize;
+    private final long maxEntryBytes;
+    private final int pagesPerSlab;
+
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private int[] freePages = new int[0];
+    private int freeCount;
+    private long usedBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    Logger logger = LoggerFactory.getLogger(AvatarCache.class);
+
+    public AvatarCache(@Value("${avatar.cache.max-size:256MB}") DataSize maxSize,
+                       @Value("${avatar.cache.page-size:64KB}") DataSize pageSize,
+                       @Value("${avatar.cache.max-entry-size:8MB}") DataSize maxEntrySize) {
+        this.maxBytes = maxSize.toBytes();
+        this.pageSize = (int) pageSize.toBytes();
+        this.maxEntryBytes = Math.min(maxEntrySize.toBytes(), maxBytes);
+        this.pagesPerSlab = Math.max(1, (int) (Math.min(MAX_SLAB_SIZE, maxBytes) / this.pageSize));
+    }
+
+    public boolean accepts(long length) {
+        return length > 0 && length <= maxEntryBytes;
+    }
+
+    public CachedAvatar get(String hash) {
+        synchronized (this) {
+            Entry entry = entries.get(hash);
+            if (entry != null) {
+                hits.incrementAndGet();
+                entry.pins++;
+                return new CachedAvatar(entry);
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public CachedAvatar put(String hash, byte[] data) {
+        Entry entry = reserve(hash, data.length);
+        if (entry == null) {
+            return null;
+        }
+        int offset = 0;
+        for (int page : entry.pages) {
+            int count = Math.min(pageSize, data.length - offset);
+            pageBuffer(page, count).put(data, offset, count);
+            offset += count;
+        }
+        return publish(entry);
+    }
+
+    public CachedAvatar put(String hash, Path file, long length) throws IOException {
+        Entry entry = reserve(hash, length);
+        if (entry == null) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long position = 0;
+            for (int page : entry.pages) {
+                ByteBuffer buffer = pageBuffer(page, (int) Math.min(pageSize, length - position));
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, position + buffer.position()) < 0) {
+                        throw new IOException("Unexpected end of file " + file);
+                    }
+                }
+                position += buffer.limit();
+            }
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                release(entry.pages);
+            }
+            throw e;
+        }
+        return publish(entry);
+    }
+
+    public CachedAvatar put(String hash, long length, ContentWriter content) throws IOException {
+        Entry entry = reserve(hash, length);
+        if (entry == null) {
+            return null;
+        }
+        try {
+            PageWriter out = new PageWriter(entry);
+            content.writeTo(out);
+            if (out.position != length) {
+                throw new IOException("Avatar content " + hash + " has " + out.position + " bytes instead of " + length);
+            }
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                release(entry.pages);
+            }
+            throw e;
+        }
+        return publish(entry);
+    }
+
+    public synchronized void invalidate(String hash) {
+        Entry entry = entries.remove(hash);
+        if (entry != null) {
+            logger.debug("Avatar content {} invalidated in cache", hash);
+            entry.removed = true;
+            freeIfUnused(entry);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("avatar.cache.hits", hits, AtomicLong::get).register(registry);
+        FunctionCounter.builder("avatar.cache.misses", misses, AtomicLong::get).register(registry);
+        FunctionCounter.builder("avatar.cache.evictions", evictions, AtomicLong::get).register(registry);
+        Gauge.builder("avatar.cache.size", this, AvatarCache::getUsedBytes).baseUnit("bytes").register(registry);
+        Gauge.builder("avatar.cache.entries", this, AvatarCache::getEntryCount).register(registry);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    private synchronized Entry reserve(String hash, long length) {
+        if (length == 0 || length > maxEntryBytes || entries.containsKey(hash)) {
+            return null;
+        }
+        int pageCount = (int) ((length + pageSize - 1) / pageSize);
+        while (freeCount < pageCount && !allocateSlab()) {
+            if (!evictOne()) {
+                logger.debug("Not enough unpinned cache memory for avatar content {}", hash);
+                return null;
+            }
+        }
+        int[] pages = new int[pageCount];
+        for (int i = 0; i < pageCount; i++) {
+            pages[i] = freePages[--freeCount];
+        }
+        return new Entry(hash, length, pages);
+    }
+
+    private synchronized CachedAvatar publish(Entry entry) {
+        if (entries.containsKey(entry.hash)) {
+            release(entry.pages);
+            return get(entry.hash);
+        }
+        entries.put(entry.hash, entry);
+        usedBytes += entry.length;
+        entry.pins++;
+        return new CachedAvatar(entry);
+    }
+
+    private boolean allocateSlab() {
+        long slabSize = (long) pagesPerSlab * pageSize;
+        if ((slabs.size() + 1) * slabSize > maxBytes) {
+            return false;
+        }
+        int firstPage = slabs.size() * pagesPerSlab;
+        slabs.add(ByteBuffer.allocateDirect((int) slabSize));
+        int[] grown = new int[freePages.length + pagesPerSlab];
+        System.arraycopy(freePages, 0, grown, 0, freeCount);
+        for (int i = 0; i < pagesPerSlab; i++) {
+            grown[freeCount++] = firstPage + i;
+        }
+        freePages = grown;
+        return true;
+    }
+
+    private boolean evictOne() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.pins == 0) {
+                iterator.remove();
+                entry.removed = true;
+                freeIfUnused(entry);
+                evictions.incrementAndGet();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void freeIfUnused(Entry entry) {
+        if (entry.removed && entry.pins == 0 && !entry.freed) {
+            entry.freed = true;
+            usedBytes -= entry.length;
+            release(entry.pages);
+        }
+    }
+
+    private void release(int[] pages) {
+        for (int page : pages) {
+            freePages[freeCount++] = page;
+        }
+    }
+
+    private synchronized void unpin(Entry entry) {
+        entry.pins--;
+        freeIfUnused(entry);
+    }
+
+    private ByteBuffer pageBuffer(int page, int length) {
+        ByteBuffer slab;
+        synchronized (this) {
+            slab = slabs.get(page / pagesPerSlab);
+        }
+        int offset = (page % pagesPerSlab) * pageSize;
+        return slab.duplicate().limit(offset + length).position(offset).slice();
+    }
+
+    @FunctionalInterface
+    public interface ContentWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private final class PageWriter extends OutputStream {
+        private final Entry entry;
+        private long position;
+
+        private PageWriter(Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (position + len > entry.length) {
+                throw new IOException("Avatar content " + entry.hash + " is longer than " + entry.length + " bytes");
+            }
+            while (len > 0) {
+                int index = (int) (position / pageSize);
+                int pageLength = (int) Math.min(pageSize, entry.length - (long) index * pageSize);
+                ByteBuffer buffer = pageBuffer(entry.pages[index], pageLength).position((int) (position % pageSize));
+                int count = Math.min(len, buffer.remaining());
+                buffer.put(b, off, count);
+                position += count;
+                off += count;
+                len -= count;
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final String hash;
+        private final long length;
+        private final int[] pages;
+        private int pins;
+        private boolean removed;
+        private boolean freed;
+
+        private Entry(String hash, long length, int[] pages) {
+            this.hash = hash;
+            this.length = length;
+            this.pages = pages;
+        }
+    }
+
+    public final class CachedAvatar implements CachedAvatarContent {
+        private final Entry entry;
+        private boolean closed;
+
+        private CachedAvatar(Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public long getLength() {
+            return entry.length;
+        }
+
+        @Override
+        public void transferTo(long position, long count, WritableByteChannel out) throws IOException {
+            long end = position + count;
+            while (position < end) {
+                int page = entry.pages[(int) (position / pageSize)];
+                int pageOffset = (int) (position % pageSize);
+                int pageLength = (int) Math.min(pageSize, entry.length - (position - pageOffset));
+                ByteBuffer buffer = pageBuffer(page, pageLength);
+                buffer.position(pageOffset).limit((int) Math.min(pageLength, pageOffset + end - position));
+                position += buffer.remaining();
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                unpin(entry);
+            }
+        }
+    }
+}
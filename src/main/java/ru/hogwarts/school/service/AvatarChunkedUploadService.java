@@ -0,0 +1,306 @@
+package ru.hogwarts.school.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import ru.hogwarts.school.exceptions.InvalidUploadChunkException;
+import ru.hogwarts.school.exceptions.StudentNotFoundException;
+import ru.hogwarts.school.exceptions.UploadIncompleteException;
+import ru.hogwarts.school.exceptions.UploadQueueFullException;
+import ru.hogwarts.school.exceptions.UploadSessionNotFoundException;
+import ru.hogwarts.school.model.dto.AvatarChunkedUploadStatus;
+import ru.hogwarts.school.model.dto.AvatarUploadResult;
+import ru.hogwarts.school.model.dto.SpooledAvatar;
+import ru.hogwarts.school.model.dto.StoredAvatarFile;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Service
+public class AvatarChunkedUploadService {
+    private static final String CHUNK_DIRECTORY = "chunks";
+    private static final String PART_EXTENSION = ".part";
+    private static final int TRANSFER_BUFFER_SIZE = 8 * 1024;
+
+    private final AvatarService avatarService;
+    private final StudentRepository studentRepository;
+    private final AvatarImageValidator imageValidator;
+    private final Path directory;
+    private final int chunkSize;
+    private final int maxSessions;
+    private final Duration sessionTtl;
+
+    private final Map<UUID, Session> sessions = new ConcurrentHashMap<>();
+
+    Logger logger = LoggerFactory.getLogger(AvatarChunkedUploadService.class);
+
+    public AvatarChunkedUploadService(AvatarService avatarService, StudentRepository studentRepository,
+                                      AvatarImageValidator imageValidator,
+                                      @Value("${image.path}") Path root,
+                                      @Value("${avatar.upload.chunked.chunk-size:1MB}") DataSize chunkSize,
+                                      @Value("${avatar.upload.chunked.max-sessions:100}") int maxSessions,
+                                      @Value("${avatar.upload.chunked.session-ttl:24h}") Duration sessionTtl) {
+        this.avatarService = avatarService;
+        this.studentRepository = studentRepository;
+        this.imageValidator = imageValidator;
+        this.directory = root.resolve(CHUNK_DIRECTORY);
+        this.chunkSize = (int) chunkSize.toBytes();
+        this.maxSessions = maxSessions;
+        this.sessionTtl = sessionTtl;
+    }
+
+    public AvatarChunkedUploadStatus initiate(long studentId, long size) throws IOException {
+        logger.info("Method initiate was invoked");
+        if (!studentRepository.existsById(studentId)) {
+            logger.error("Student with id: {} not found", studentId);
+            throw new StudentNotFoundException("Студент с id " + studentId + " не найден");
+        }
+        if (size <= 0) {
+            logger.error("Invalid upload size {}", size);
+            throw new InvalidUploadChunkException("Размер загрузки должен быть положительным");
+        }
+        imageValidator.checkSize(size);
+        if (sessions.size() >= maxSessions) {
+            evictExpiredSessions();
+            if (sessions.size() >= maxSessions) {
+                logger.warn("Too many chunked avatar uploads in progress");
+                throw new UploadQueueFullException("Слишком много незавершённых загрузок");
+            }
+        }
+
+        Files.createDirectories(directory);
+        UUID id = UUID.randomUUID();
+        Path file = directory.resolve(id + PART_EXTENSION);
+        Files.createFile(file);
+        Session session = new Session(id, studentId, size, file);
+        sessions.put(id, session);
+        logger.debug("Started chunked avatar upload {} of {} bytes for student {}", id, size, studentId);
+        return session.status();
+    }
+
+    public AvatarChunkedUploadStatus getStatus(UUID id) {
+        logger.info("Method getStatus was invoked");
+        return session(id).status();
+    }
+
+    public AvatarChunkedUploadStatus writeChunk(UUID id, int index, InputStream in) throws IOException {
+        logger.info("Method writeChunk was invoked");
+        Session session = session(id);
+        session.lock.readLock().lock();
+        try {
+            session.ensureOpen();
+            if (index < 0 || index >= session.chunkCount) {
+                logger.error("Chunk {} is out of range for upload {}", index, id);
+                throw new InvalidUploadChunkException("Фрагмент " + index + " вне диапазона 0.." + (session.chunkCount - 1));
+            }
+            if (session.isReceived(index)) {
+                logger.debug("Chunk {} of upload {} was already received", index, id);
+                return session.touch();
+            }
+            long offset = (long) index * chunkSize;
+            writeAt(session.file, offset, session.chunkLength(index), in);
+            session.markReceived(index);
+            return session.touch();
+        } finally {
+            session.lock.readLock().unlock();
+        }
+    }
+
+    public long complete(UUID id) throws IOException {
+        logger.info("Method complete was invoked");
+        Session session = session(id);
+        session.lock.writeLock().lock();
+        try {
+            session.ensureOpen();
+            List<Integer> missing = session.missingChunks();
+            if (!missing.isEmpty()) {
+                logger.warn("Upload {} is missing {} chunks", id, missing.size());
+                throw new UploadIncompleteException("Не получены фрагменты: " + missing);
+            }
+            session.closed = true;
+            sessions.remove(id);
+
+            AvatarUploadResult result;
+            try {
+                StoredAvatarFile file = avatarService.inspectAvatarFile(session.file);
+                result = avatarService.saveAvatars(
+                        List.of(new SpooledAvatar(id.toString(), session.studentId, null, file))).get(0);
+            } catch (IOException | RuntimeException e) {
+                avatarService.deleteQuietly(session.file);
+                throw e;
+            }
+            if (!result.isUploaded()) {
+                if (!studentRepository.existsById(session.studentId)) {
+                    throw new StudentNotFoundException(result.getError());
+                }
+                throw new IOException(result.getError());
+            }
+            logger.debug("Completed chunked avatar upload {} for student {}", id, session.studentId);
+            return result.getAvatarId();
+        } finally {
+            session.lock.writeLock().unlock();
+        }
+    }
+
+    public void cancel(UUID id) {
+        logger.info("Method cancel was invoked");
+        discard(session(id));
+    }
+
+    @Scheduled(initialDelayString = "${avatar.upload.chunked.sweep-interval:PT15M}",
+            fixedDelayString = "${avatar.upload.chunked.sweep-interval:PT15M}")
+    void evictExpiredSessions() {
+        Instant threshold = Instant.now().minus(sessionTtl);
+        for (Session session : sessions.values()) {
+            if (session.lastActivity.isBefore(threshold)) {
+                logger.debug("Chunked avatar upload {} expired", session.id);
+                discard(session);
+            }
+        }
+        if (Files.notExists(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + PART_EXTENSION)) {
+            for (Path file : files) {
+                if (!isActive(file) && Files.getLastModifiedTime(file).toInstant().isBefore(threshold)) {
+                    logger.debug("Removing abandoned upload file {}", file);
+                    avatarService.deleteQuietly(file);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to sweep chunked upload directory {}", directory, e);
+        }
+    }
+
+    private boolean isActive(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return sessions.containsKey(UUID.fromString(name.substring(0, name.length() - PART_EXTENSION.length())));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private void discard(Session session) {
+        if (!session.lock.writeLock().tryLock()) {
+            logger.debug("Upload {} is busy, skipping", session.id);
+            return;
+        }
+        try {
+            if (!session.closed) {
+                session.closed = true;
+                sessions.remove(session.id);
+                avatarService.deleteQuietly(session.file);
+            }
+        } finally {
+            session.lock.writeLock().unlock();
+        }
+    }
+
+    private void writeAt(Path file, long offset, int length, InputStream in) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(TRANSFER_BUFFER_SIZE);
+        byte[] chunk = buffer.array();
+        long position = offset;
+        long end = offset + length;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                if (position + read > end) {
+                    throw new InvalidUploadChunkException("Фрагмент длиннее " + length + " байт");
+                }
+                buffer.clear().limit(read);
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+            }
+        }
+        if (position != end) {
+            throw new InvalidUploadChunkException("Фрагмент короче " + length + " байт");
+        }
+    }
+
+    private Session session(UUID id) {
+        Session session = sessions.get(id);
+        if (session == null) {
+            throw new UploadSessionNotFoundException("Сессия загрузки " + id + " не найдена");
+        }
+        return session;
+    }
+
+    private final class Session {
+        private final UUID id;
+        private final long studentId;
+        private final long size;
+        private final int chunkCount;
+        private final Path file;
+        private final BitSet received;
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private volatile Instant lastActivity = Instant.now();
+        private volatile boolean closed;
+
+        private Session(UUID id, long studentId, long size, Path file) {
+            this.id = id;
+            this.studentId = studentId;
+            this.size = size;
+            this.chunkCount = (int) ((size + chunkSize - 1) / chunkSize);
+            this.file = file;
+            this.received = new BitSet(chunkCount);
+        }
+
+        private void ensureOpen() {
+            if (closed) {
+                throw new UploadSessionNotFoundException("Сессия загрузки " + id + " не найдена");
+            }
+        }
+
+        private int chunkLength(int index) {
+            return (int) Math.min(chunkSize, size - (long) index * chunkSize);
+        }
+
+        private synchronized boolean isReceived(int index) {
+            return received.get(index);
+        }
+
+        private synchronized void markReceived(int index) {
+            received.set(index);
+        }
+
+        private synchronized List<Integer> missingChunks() {
+            List<Integer> missing = new ArrayList<>();
+            for (int index = received.nextClearBit(0); index < chunkCount; index = received.nextClearBit(index + 1)) {
+                missing.add(index);
+            }
+            return missing;
+        }
+
+        private AvatarChunkedUploadStatus touch() {
+            lastActivity = Instant.now();
+            return status();
+        }
+
+        private AvatarChunkedUploadStatus status() {
+            return new AvatarChunkedUploadStatus(id, studentId, size, chunkSize, chunkCount, missingChunks(),
+                    lastActivity.plus(sessionTtl));
+        }
+    }
+}
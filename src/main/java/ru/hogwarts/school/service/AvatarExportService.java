@@ -0,0 +1,241 @@
+package ru.hogwarts.school.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.hogwarts.school.exceptions.AvatarNotFoundException;
+import ru.hogwarts.school.exceptions.ImageReadFailureException;
+import ru.hogwarts.school.model.AvatarArchiveFormat;
+import ru.hogwarts.school.model.dto.AvatarInfo;
+import ru.hogwarts.school.model.dto.AvatarView;
+import ru.hogwarts.school.repository.AvatarRepository;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+@Service
+public class AvatarExportService {
+    private static final int TAR_BLOCK_SIZE = 512;
+
+    private final AvatarRepository avatarRepository;
+    private final AvatarService avatarService;
+    private final AvatarBlobStreamer blobStreamer;
+
+    Logger logger = LoggerFactory.getLogger(AvatarExportService.class);
+
+    public AvatarExportService(AvatarRepository avatarRepository, AvatarService avatarService,
+                               AvatarBlobStreamer blobStreamer) {
+        this.avatarRepository = avatarRepository;
+        this.avatarService = avatarService;
+        this.blobStreamer = blobStreamer;
+    }
+
+    @Transactional(readOnly = true)
+    public long export(Long facultyId, AvatarArchiveFormat format, OutputStream out) throws IOException {
+        logger.info("Method export was invoked");
+        ArchiveWriter archive = format == AvatarArchiveFormat.ZIP ? new ZipArchiveWriter(out) : new TarArchiveWriter(out);
+        long exported = 0;
+        try (Stream<AvatarInfo> avatars = facultyId == null
+                ? avatarRepository.streamAllInfo()
+                : avatarRepository.streamInfoByFacultyId(facultyId)) {
+            Iterator<AvatarInfo> iterator = avatars.iterator();
+            while (iterator.hasNext()) {
+                if (writeEntry(archive, iterator.next())) {
+                    exported++;
+                }
+            }
+        }
+        archive.finish();
+        logger.info("Exported {} avatars as {}", exported, format);
+        return exported;
+    }
+
+    private boolean writeEntry(ArchiveWriter archive, AvatarInfo info) throws IOException {
+        String name = info.getStudentId() + "." + extensionOf(info.getMediaType());
+        long lastModified = info.getUpdatedAt() == null ? System.currentTimeMillis() : info.getUpdatedAt().toEpochMilli();
+        if (info.getFilePath() != null) {
+            AvatarView view = findFile(info);
+            if (view != null) {
+                archive.putEntry(name, view.getLength(), lastModified, out -> copy(view, out));
+                return true;
+            }
+            if (info.getStorage() == null || !info.getStorage().storesInDb()) {
+                logger.warn("Skipping avatar with id: {}, its file is missing", info.getId());
+                return false;
+            }
+        }
+        archive.putEntry(name, info.getFileSize(), lastModified, out -> blobStreamer.stream(info, out));
+        return true;
+    }
+
+    private AvatarView findFile(AvatarInfo info) {
+        try {
+            return avatarService.getAvatarFile(info);
+        } catch (AvatarNotFoundException | ImageReadFailureException e) {
+            return null;
+        }
+    }
+
+    private void copy(AvatarView view, OutputStream out) throws IOException {
+        WritableByteChannel target = Channels.newChannel(out);
+        if (view.getBuffer() != null) {
+            ByteBuffer buffer = view.getBuffer().duplicate();
+            while (buffer.hasRemaining()) {
+                target.write(buffer);
+            }
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(view.getFile(), StandardOpenOption.READ)) {
+            long position = 0;
+            long length = view.getLength();
+            while (position < length) {
+                long transferred = channel.transferTo(position, length - position, target);
+                if (transferred <= 0) {
+                    throw new IOException("Unexpected end of file " + view.getFile());
+                }
+                position += transferred;
+            }
+        }
+    }
+
+    private String extensionOf(String mediaType) {
+        if (mediaType == null) {
+            return "bin";
+        }
+        try {
+            String subtype = MediaType.parseMediaType(mediaType).getSubtype();
+            int suffix = subtype.indexOf('+');
+            subtype = suffix < 0 ? subtype : subtype.substring(0, suffix);
+            return subtype.equals("jpeg") ? "jpg" : subtype;
+        } catch (IllegalArgumentException e) {
+            return "bin";
+        }
+    }
+
+    private interface EntryBody {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private interface ArchiveWriter {
+        void putEntry(String name, long size, long lastModified, EntryBody body) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    private static final class ZipArchiveWriter implements ArchiveWriter {
+        private final ZipOutputStream zip;
+
+        private ZipArchiveWriter(OutputStream out) {
+            zip = new ZipOutputStream(out);
+            zip.setLevel(Deflater.NO_COMPRESSION);
+        }
+
+        @Override
+        public void putEntry(String name, long size, long lastModified, EntryBody body) throws IOException {
+            ZipEntry entry = new ZipEntry(name);
+            entry.setTime(lastModified);
+            zip.putNextEntry(entry);
+            body.writeTo(zip);
+            zip.closeEntry();
+        }
+
+        @Override
+        public void finish() throws IOException {
+            zip.finish();
+            zip.flush();
+        }
+    }
+
+    private static final class TarArchiveWriter implements ArchiveWriter {
+        private final OutputStream out;
+
+        private TarArchiveWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void putEntry(String name, long size, long lastModified, EntryBody body) throws IOException {
+            out.write(header(name, size, lastModified));
+            CountingOutputStream counter = new CountingOutputStream(out);
+            body.writeTo(counter);
+            if (counter.count != size) {
+                throw new IOException("Archive entry " + name + " has " + counter.count + " bytes instead of " + size);
+            }
+            int padding = (int) ((TAR_BLOCK_SIZE - size % TAR_BLOCK_SIZE) % TAR_BLOCK_SIZE);
+            out.write(new byte[padding]);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            out.write(new byte[2 * TAR_BLOCK_SIZE]);
+            out.flush();
+        }
+
+        private byte[] header(String name, long size, long lastModified) {
+            byte[] header = new byte[TAR_BLOCK_SIZE];
+            putString(header, 0, 100, name);
+            putOctal(header, 100, 8, 0644);
+            putOctal(header, 108, 8, 0);
+            putOctal(header, 116, 8, 0);
+            putOctal(header, 124, 12, size);
+            putOctal(header, 136, 12, lastModified / 1000);
+            Arrays.fill(header, 148, 156, (byte) ' ');
+            header[156] = '0';
+            putString(header, 257, 6, "ustar");
+            putString(header, 263, 2, "00");
+            long checksum = 0;
+            for (byte b : header) {
+                checksum += b & 0xff;
+            }
+            putOctal(header, 148, 7, checksum);
+            return header;
+        }
+
+        private void putString(byte[] header, int offset, int length, String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(bytes, 0, header, offset, Math.min(bytes.length, length));
+        }
+
+        private void putOctal(byte[] header, int offset, int length, long value) {
+            String octal = Long.toOctalString(value);
+            String padded = "0".repeat(Math.max(0, length - 1 - octal.length())) + octal;
+            putString(header, offset, length - 1, padded);
+            header[offset + length - 1] = 0;
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package ru.hogwarts.school.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.hogwarts.school.repository.AvatarRepository;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Service
+public class AvatarFileReclaimer {
+    private static final String PACK_DIRECTORY = "packs";
+    private static final String CHUNK_DIRECTORY = "chunks";
+    private static final Pattern CONTENT_NAME = Pattern.compile("[0-9a-f]{64}");
+    private static final Pattern RENDITION_NAME = Pattern.compile("([0-9a-f]{64})_\\d+\\.(jpg|png)");
+
+    private final AvatarService avatarService;
+    private final AvatarRepository avatarRepository;
+    private final Path root;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int filesPerSecond;
+    private final Duration minAge;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    Logger logger = LoggerFactory.getLogger(AvatarFileReclaimer.class);
+
+    public AvatarFileReclaimer(AvatarService avatarService, AvatarRepository avatarRepository,
+                               @Value("${image.path}") Path root,
+                               @Value("${avatar.reclaimer.enabled:true}") boolean enabled,
+                               @Value("${avatar.reclaimer.batch-size:500}") int batchSize,
+                               @Value("${avatar.reclaimer.files-per-second:200}") int filesPerSecond,
+                               @Value("${avatar.reclaimer.min-age:1h}") Duration minAge) {
+        this.avatarService = avatarService;
+        this.avatarRepository = avatarRepository;
+        this.root = root;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.filesPerSecond = filesPerSecond;
+        this.minAge = minAge;
+    }
+
+    @Scheduled(initialDelayString = "${avatar.reclaimer.interval:PT6H}", fixedDelayString = "${avatar.reclaimer.interval:PT6H}")
+    void reclaimOnSchedule() {
+        if (enabled) {
+            reclaim();
+        }
+    }
+
+    public long reclaim() {
+        logger.info("Method reclaim was invoked");
+        if (Files.notExists(root)) {
+            return 0;
+        }
+        if (!running.compareAndSet(false, true)) {
+            logger.warn("Avatar file reclaimer is already running");
+            return 0;
+        }
+        try {
+            Pass pass = new Pass(Instant.now().minus(minAge));
+            Files.walkFileTree(root, pass);
+            pass.flush();
+            logger.info("Avatar file reclaimer scanned {} files, removed {} files ({} bytes)",
+                    pass.scanned, pass.removed, pass.removedBytes);
+            return pass.removed;
+        } catch (IOException e) {
+            logger.error("Avatar file reclaimer failed", e);
+            return 0;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private final class Pass extends SimpleFileVisitor<Path> {
+        private final Instant threshold;
+        private final long startedAt = System.nanoTime();
+        private final List<Path> batch = new ArrayList<>();
+        private long scanned;
+        private long removed;
+        private long removedBytes;
+        private boolean interrupted;
+
+        private Pass(Instant threshold) {
+            this.threshold = threshold;
+        }
+
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+            if (dir.getParent() != null && dir.getParent().equals(root)
+                    && (dir.endsWith(PACK_DIRECTORY) || dir.endsWith(CHUNK_DIRECTORY))) {
+                return FileVisitResult.SKIP_SUBTREE;
+            }
+            return interrupted ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+            scanned++;
+            if (attrs.isRegularFile() && attrs.lastModifiedTime().toInstant().isBefore(threshold)) {
+                batch.add(file);
+                if (batch.size() >= batchSize) {
+                    flush();
+                }
+            }
+            return interrupted ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException e) {
+            if (!(e instanceof NoSuchFileException)) {
+                logger.warn("Failed to inspect avatar file {}", file, e);
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            Map<String, Path> contentFiles = new HashMap<>();
+            List<Path> otherFiles = new ArrayList<>();
+            List<Path> renditions = new ArrayList<>();
+            for (Path file : batch) {
+                String name = file.getFileName().toString();
+                if (isTemporary(name)) {
+                    remove(file);
+                } else if (CONTENT_NAME.matcher(name).matches()) {
+                    contentFiles.put(name, file);
+                } else if (RENDITION_NAME.matcher(name).matches()) {
+                    renditions.add(file);
+                } else {
+                    otherFiles.add(file);
+                }
+            }
+
+            if (!contentFiles.isEmpty()) {
+                Set<String> referenced = avatarRepository.findContentHashesWithFile(contentFiles.keySet());
+                contentFiles.forEach((hash, file) -> {
+                    if (!referenced.contains(hash)) {
+                        long size = sizeOf(file);
+                        avatarService.deleteContentFileIfUnused(hash);
+                        if (Files.notExists(file)) {
+                            logger.debug("Reclaimed unreferenced avatar content {}", file);
+                            removed++;
+                            removedBytes += size;
+                        }
+                    }
+                });
+            }
+            if (!otherFiles.isEmpty()) {
+                Set<String> paths = new HashSet<>();
+                for (Path file : otherFiles) {
+                    paths.add(file.toString());
+                    paths.add(file.toAbsolutePath().toString());
+                }
+                Set<String> referenced = avatarRepository.findFilePathsIn(paths);
+                for (Path file : otherFiles) {
+                    if (!referenced.contains(file.toString()) && !referenced.contains(file.toAbsolutePath().toString())) {
+                        remove(file);
+                    }
+                }
+            }
+            for (Path rendition : renditions) {
+                Matcher matcher = RENDITION_NAME.matcher(rendition.getFileName().toString());
+                if (matcher.matches() && Files.notExists(rendition.resolveSibling(matcher.group(1)))) {
+                    remove(rendition);
+                }
+            }
+            batch.clear();
+            throttle();
+        }
+
+        private boolean isTemporary(String name) {
+            return name.endsWith(".upload") || name.endsWith(".tmp");
+        }
+
+        private void remove(Path file) {
+            long size = sizeOf(file);
+            try {
+                if (Files.deleteIfExists(file)) {
+                    logger.debug("Reclaimed orphaned avatar file {}", file);
+                    removed++;
+                    removedBytes += size;
+                }
+            } catch (IOException e) {
+                logger.warn("Failed to delete avatar file {}", file, e);
+            }
+        }
+
+        private long sizeOf(Path file) {
+            try {
+                return Files.size(file);
+            } catch (IOException e) {
+                return 0;
+            }
+        }
+
+        private void throttle() {
+            if (filesPerSecond <= 0) {
+                return;
+            }
+            long expectedNanos = scanned * 1_000_000_000L / filesPerSecond;
+            long aheadMillis = (expectedNanos - (System.nanoTime() - startedAt)) / 1_000_000;
+            if (aheadMillis > 0) {
+                try {
+                    Thread.sleep(aheadMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    interrupted = true;
+                }
+            }
+        }
+    }
+}
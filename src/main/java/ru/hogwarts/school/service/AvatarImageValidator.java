@@ -0,0 +1,196 @@
+package ru.hogwarts.school.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import ru.hogwarts.school.exceptions.ImageTooLargeException;
+import ru.hogwarts.school.exceptions.InvalidImageException;
+import ru.hogwarts.school.model.dto.AvatarImageHeader;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+
+@Component
+public class AvatarImageValidator {
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+    private static final byte[] JPEG = {(byte) 0xff, (byte) 0xd8, (byte) 0xff};
+    private static final byte[] GIF87 = {'G', 'I', 'F', '8', '7', 'a'};
+    private static final byte[] GIF89 = {'G', 'I', 'F', '8', '9', 'a'};
+    private static final byte[] BMP = {'B', 'M'};
+
+    private final long maxBytes;
+    private final long maxPixels;
+    private final int headerLimit;
+
+    Logger logger = LoggerFactory.getLogger(AvatarImageValidator.class);
+
+    public AvatarImageValidator(@Value("${avatar.upload.max-size:10MB}") DataSize maxSize,
+                                @Value("${avatar.upload.max-pixels:16777216}") long maxPixels,
+                                @Value("${avatar.upload.header-limit:256KB}") DataSize headerLimit) {
+        this.maxBytes = maxSize.toBytes();
+        this.maxPixels = maxPixels;
+        this.headerLimit = (int) headerLimit.toBytes();
+    }
+
+    public void checkSize(long size) {
+        if (size > maxBytes) {
+            logger.error("Image of {} bytes exceeds the limit of {} bytes", size, maxBytes);
+            throw new ImageTooLargeException("Размер изображения превышает " + maxBytes + " байт");
+        }
+    }
+
+    public AvatarImageHeader validate(BufferedInputStream in) throws IOException {
+        in.mark(headerLimit);
+        try {
+            MediaType mediaType = sniff(in.readNBytes(PNG.length));
+            if (mediaType == null) {
+                logger.error("Upload is not a supported image");
+                throw new InvalidImageException("Файл не является изображением PNG, JPEG, GIF или BMP");
+            }
+            in.reset();
+            AvatarImageHeader header = readHeader(new HeaderInputStream(in, headerLimit), mediaType);
+            if ((long) header.getWidth() * header.getHeight() > maxPixels) {
+                logger.error("Image of {}x{} pixels exceeds the limit of {} pixels", header.getWidth(), header.getHeight(), maxPixels);
+                throw new ImageTooLargeException("Изображение превышает " + maxPixels + " пикселей");
+            }
+            return header;
+        } finally {
+            in.reset();
+        }
+    }
+
+    public InputStream limit(InputStream in) {
+        return new SizeLimitedInputStream(in);
+    }
+
+    private MediaType sniff(byte[] magic) {
+        if (startsWith(magic, PNG)) {
+            return MediaType.IMAGE_PNG;
+        }
+        if (startsWith(magic, JPEG)) {
+            return MediaType.IMAGE_JPEG;
+        }
+        if (startsWith(magic, GIF87) || startsWith(magic, GIF89)) {
+            return MediaType.IMAGE_GIF;
+        }
+        if (startsWith(magic, BMP)) {
+            return MediaType.parseMediaType("image/bmp");
+        }
+        return null;
+    }
+
+    private boolean startsWith(byte[] data, byte[] prefix) {
+        return data.length >= prefix.length && Arrays.equals(data, 0, prefix.length, prefix, 0, prefix.length);
+    }
+
+    private AvatarImageHeader readHeader(InputStream in, MediaType mediaType) {
+        Iterator<ImageReader> readers = ImageIO.getImageReadersByMIMEType(mediaType.toString());
+        if (!readers.hasNext()) {
+            throw new InvalidImageException("Формат " + mediaType + " не поддерживается");
+        }
+        ImageReader reader = readers.next();
+        try (ImageInputStream image = new MemoryCacheImageInputStream(in)) {
+            reader.setInput(image, true, true);
+            int width = reader.getWidth(0);
+            int height = reader.getHeight(0);
+            if (width <= 0 || height <= 0) {
+                throw new InvalidImageException("Некорректные размеры изображения");
+            }
+            return new AvatarImageHeader(mediaType, width, height);
+        } catch (IOException | RuntimeException e) {
+            if (e instanceof InvalidImageException invalid) {
+                throw invalid;
+            }
+            logger.error("Failed to read image header", e);
+            throw new InvalidImageException("Не удалось прочитать заголовок изображения");
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    private static final class HeaderInputStream extends FilterInputStream {
+        private int remaining;
+
+        private HeaderInputStream(InputStream in, int limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = in.read(b, off, Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(Math.min(n, remaining));
+            remaining -= (int) skipped;
+            return skipped;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private final class SizeLimitedInputStream extends FilterInputStream {
+        private long count;
+
+        private SizeLimitedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = in.read(b, off, len);
+            if (read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        private void count(int read) {
+            count += read;
+            checkSize(count);
+        }
+    }
+}
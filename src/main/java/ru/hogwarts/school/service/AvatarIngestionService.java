@@ -0,0 +1,170 @@
+package ru.hogwarts.school.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import ru.hogwarts.school.exceptions.StudentNotFoundException;
+import ru.hogwarts.school.exceptions.UploadJobNotFoundException;
+import ru.hogwarts.school.exceptions.UploadQueueFullException;
+import ru.hogwarts.school.model.dto.AvatarUploadJobState;
+import ru.hogwarts.school.model.dto.AvatarUploadJobStatus;
+import ru.hogwarts.school.model.dto.AvatarUploadQueueStatus;
+import ru.hogwarts.school.model.dto.AvatarUploadResult;
+import ru.hogwarts.school.model.dto.SpooledAvatar;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class AvatarIngestionService {
+    private final AvatarService avatarService;
+    private final StudentRepository studentRepository;
+    private final int capacity;
+    private final Duration jobRetention;
+    private final ThreadPoolExecutor executor;
+
+    private final Map<UUID, Job> jobs = new ConcurrentHashMap<>();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    Logger logger = LoggerFactory.getLogger(AvatarIngestionService.class);
+
+    public AvatarIngestionService(AvatarService avatarService, StudentRepository studentRepository,
+                                  @Value("${avatar.upload.async.threads:2}") int threads,
+                                  @Value("${avatar.upload.async.queue-capacity:200}") int capacity,
+                                  @Value("${avatar.upload.async.job-retention:1h}") Duration jobRetention) {
+        this.avatarService = avatarService;
+        this.studentRepository = studentRepository;
+        this.capacity = capacity;
+        this.jobRetention = jobRetention;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(capacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "avatar-ingestion-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public AvatarUploadJobStatus submit(long studentId, MultipartFile file) throws IOException {
+        logger.info("Method submit was invoked");
+        if (!studentRepository.existsById(studentId)) {
+            logger.error("Student with id: {} not found", studentId);
+            throw new StudentNotFoundException("Студент с id " + studentId + " не найден");
+        }
+        if (file.getOriginalFilename() == null) {
+            logger.error("Invalid image");
+            throw new RuntimeException("Некорректное изображение");
+        }
+        if (executor.getQueue().remainingCapacity() == 0) {
+            logger.warn("Avatar upload queue is full");
+            throw new UploadQueueFullException("Очередь загрузки аватаров переполнена");
+        }
+        evictFinishedJobs();
+
+        SpooledAvatar spooled;
+        try (InputStream in = file.getInputStream()) {
+            spooled = new SpooledAvatar(file.getOriginalFilename(), studentId, file.getContentType(),
+                    avatarService.spoolAvatarFile(in));
+        }
+        Job job = new Job(spooled);
+        jobs.put(job.id, job);
+        try {
+            executor.execute(job);
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            avatarService.deleteQuietly(spooled.getFile().getPath());
+            logger.warn("Avatar upload queue is full");
+            throw new UploadQueueFullException("Очередь загрузки аватаров переполнена");
+        }
+        logger.debug("Queued avatar upload job {} for student {}", job.id, studentId);
+        return job.status();
+    }
+
+    public AvatarUploadJobStatus getJob(UUID id) {
+        logger.info("Method getJob was invoked");
+        Job job = jobs.get(id);
+        if (job == null) {
+            throw new UploadJobNotFoundException("Задача загрузки " + id + " не найдена");
+        }
+        return job.status();
+    }
+
+    public AvatarUploadQueueStatus getQueueStatus() {
+        logger.info("Method getQueueStatus was invoked");
+        return new AvatarUploadQueueStatus(executor.getQueue().size(), capacity, executor.getActiveCount(),
+                completed.get(), failed.get());
+    }
+
+    private void evictFinishedJobs() {
+        Instant threshold = Instant.now().minus(jobRetention);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(threshold));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        for (Runnable pending : executor.shutdownNow()) {
+            Job job = (Job) pending;
+            avatarService.deleteQuietly(job.upload.getFile().getPath());
+            logger.warn("Discarded queued avatar upload job {} on shutdown", job.id);
+        }
+    }
+
+    private final class Job implements Runnable {
+        private final UUID id = UUID.randomUUID();
+        private final SpooledAvatar upload;
+        private final Instant submittedAt = Instant.now();
+        private volatile AvatarUploadJobState state = AvatarUploadJobState.QUEUED;
+        private volatile Long avatarId;
+        private volatile String error;
+        private volatile Instant finishedAt;
+
+        private Job(SpooledAvatar upload) {
+            this.upload = upload;
+        }
+
+        @Override
+        public void run() {
+            state = AvatarUploadJobState.RUNNING;
+            try {
+                AvatarUploadResult result = avatarService.saveAvatars(List.of(upload)).get(0);
+                avatarId = result.getAvatarId();
+                error = result.getError();
+            } catch (RuntimeException e) {
+                logger.error("Avatar upload job {} failed", id, e);
+                avatarService.deleteQuietly(upload.getFile().getPath());
+                error = "Не удалось сохранить аватар";
+            }
+            if (error == null) {
+                completed.incrementAndGet();
+                state = AvatarUploadJobState.DONE;
+            } else {
+                failed.incrementAndGet();
+                state = AvatarUploadJobState.FAILED;
+            }
+            finishedAt = Instant.now();
+        }
+
+        private AvatarUploadJobStatus status() {
+            return new AvatarUploadJobStatus(id, upload.getStudentId(), state, avatarId, error, submittedAt);
+        }
+    }
+}
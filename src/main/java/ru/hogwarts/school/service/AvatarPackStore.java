@@ -0,0 +1,492 @@
+package ru.hogwarts.school.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import ru.hogwarts.school.model.AvatarStorageEngine;
+import ru.hogwarts.school.model.dto.AvatarView;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+@Component
+public class AvatarPackStore implements AvatarStore {
+    private static final int RECORD_MAGIC = 0x41565031;
+    private static final int HASH_SIZE = 32;
+    static final int HEADER_SIZE = 4 + HASH_SIZE + 8;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".pack";
+    private static final String LOCATION_PREFIX = "pack:";
+
+    private final Path directory;
+    private final long segmentSize;
+    private final double compactionThreshold;
+
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+    private volatile Segment active;
+    private volatile boolean opened;
+
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "avatar-pack-compaction");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    Logger logger = LoggerFactory.getLogger(AvatarPackStore.class);
+
+    public AvatarPackStore(@Value("${image.path}") Path imageDir,
+                           @Value("${avatar.pack.segment-size:256MB}") DataSize segmentSize,
+                           @Value("${avatar.pack.compaction-threshold:0.5}") double compactionThreshold) {
+        this.directory = imageDir.resolve("packs");
+        this.segmentSize = Math.min(segmentSize.toBytes(), Integer.MAX_VALUE);
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    @Override
+    public AvatarStorageEngine getEngine() {
+        return AvatarStorageEngine.PACK;
+    }
+
+    @Override
+    public String location(String hash) {
+        return LOCATION_PREFIX + hash;
+    }
+
+    @Override
+    public boolean contains(String hash) {
+        open();
+        return index.containsKey(hash);
+    }
+
+    @Override
+    public void put(String hash, Path source) throws IOException {
+        open();
+        synchronized (this) {
+            if (index.containsKey(hash)) {
+                Files.delete(source);
+                return;
+            }
+            try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+                long length = in.size();
+                Segment segment = segmentFor(length);
+                long offset = segment.append(hash, length, (channel, position) -> {
+                    long transferred = 0;
+                    while (transferred < length) {
+                        long count = channel.transferFrom(in, position + transferred, length - transferred);
+                        if (count <= 0) {
+                            throw new IOException("Avatar content " + hash + " ended after " + transferred
+                                    + " of " + length + " bytes");
+                        }
+                        transferred += count;
+                    }
+                });
+                publish(hash, segment, offset, length);
+            }
+            Files.delete(source);
+        }
+    }
+
+    @Override
+    public void put(String hash, byte[] data) throws IOException {
+        open();
+        synchronized (this) {
+            if (index.containsKey(hash)) {
+                return;
+            }
+            Segment segment = segmentFor(data.length);
+            long offset = segment.append(hash, data.length,
+                    (channel, position) -> Segment.write(channel, ByteBuffer.wrap(data), position));
+            publish(hash, segment, offset, data.length);
+        }
+    }
+
+    @Override
+    public byte[] get(String hash) throws IOException {
+        ByteBuffer buffer = require(hash);
+        byte[] data = new byte[buffer.remaining()];
+        buffer.get(data);
+        return data;
+    }
+
+    @Override
+    public InputStream stream(String hash) throws IOException {
+        ByteBuffer buffer = require(hash);
+        return new InputStream() {
+            @Override
+            public int read() {
+                return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (!buffer.hasRemaining()) {
+                    return -1;
+                }
+                int count = Math.min(len, buffer.remaining());
+                buffer.get(b, off, count);
+                return count;
+            }
+        };
+    }
+
+    @Override
+    public AvatarView view(String hash, MediaType mediaType, long lastModified) {
+        ByteBuffer buffer = read(hash);
+        return buffer == null ? null : new AvatarView(mediaType, buffer, lastModified, hash);
+    }
+
+    public ByteBuffer read(String hash) {
+        open();
+        while (true) {
+            Entry entry = index.get(hash);
+            if (entry == null) {
+                return null;
+            }
+            Segment segment = segments.get(entry.segmentId);
+            if (segment == null || !segment.acquire()) {
+                continue;
+            }
+            try {
+                return segment.slice(entry.offset, entry.length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                release(segment);
+            }
+        }
+    }
+
+    @Override
+    public void delete(String hash) {
+        if (!opened && Files.notExists(directory)) {
+            return;
+        }
+        open();
+        Segment segment;
+        synchronized (this) {
+            Entry entry = index.remove(hash);
+            if (entry == null) {
+                return;
+            }
+            segment = segments.get(entry.segmentId);
+            try {
+                segmentFor(0).append(hash, -1L - entry.segmentId, null);
+            } catch (IOException e) {
+                logger.error("Failed to write tombstone for avatar content {}", hash, e);
+            }
+            segment.deadBytes.addAndGet(HEADER_SIZE + entry.length);
+            logger.debug("Avatar content {} removed from segment {}", hash, entry.segmentId);
+        }
+        if (segment != active && segment.garbageRatio() >= compactionThreshold) {
+            compactor.execute(() -> compact(segment.id));
+        }
+    }
+
+    public void compact() {
+        open();
+        for (Segment segment : List.copyOf(segments.values())) {
+            if (segment != active && segment.garbageRatio() >= compactionThreshold) {
+                compact(segment.id);
+            }
+        }
+    }
+
+    private ByteBuffer require(String hash) throws IOException {
+        ByteBuffer buffer = read(hash);
+        if (buffer == null) {
+            throw new NoSuchFileException(location(hash));
+        }
+        return buffer;
+    }
+
+    synchronized void compact(int segmentId) {
+        Segment segment = segments.get(segmentId);
+        if (segment == null || segment == active) {
+            return;
+        }
+        logger.info("Compacting avatar pack segment {} ({} of {} bytes are garbage)",
+                segmentId, segment.deadBytes.get(), segment.size);
+        try {
+            ByteBuffer mapped = segment.slice(0, segment.size);
+            for (Map.Entry<String, Entry> live : index.entrySet()) {
+                Entry entry = live.getValue();
+                if (entry.segmentId != segmentId) {
+                    continue;
+                }
+                Segment target = segmentFor(entry.length);
+                ByteBuffer data = mapped.slice((int) entry.offset, (int) entry.length);
+                long offset = target.append(live.getKey(), entry.length,
+                        (channel, position) -> Segment.write(channel, data, position));
+                publish(live.getKey(), target, offset, entry.length);
+            }
+            for (long position = 0; position + HEADER_SIZE <= segment.size; ) {
+                long length = mapped.getLong((int) position + 4 + HASH_SIZE);
+                int deletedFrom = (int) (-1L - length);
+                if (length < 0 && deletedFrom != segmentId && segments.containsKey(deletedFrom)) {
+                    byte[] raw = new byte[HASH_SIZE];
+                    mapped.get((int) position + 4, raw);
+                    segmentFor(0).append(HexFormat.of().formatHex(raw), length, null);
+                }
+                position += HEADER_SIZE + Math.max(length, 0);
+            }
+            segments.remove(segmentId);
+            release(segment);
+        } catch (IOException e) {
+            logger.error("Failed to compact avatar pack segment {}", segmentId, e);
+        }
+    }
+
+    private void release(Segment segment) {
+        if (!segment.release()) {
+            return;
+        }
+        try {
+            segment.channel.close();
+            Files.deleteIfExists(segment.path);
+            logger.debug("Retired avatar pack segment {}", segment.id);
+        } catch (IOException e) {
+            logger.warn("Failed to remove avatar pack segment {}", segment.id, e);
+        }
+    }
+
+    private void publish(String hash, Segment segment, long offset, long length) {
+        Entry previous = index.put(hash, new Entry(segment.id, offset, length));
+        if (previous != null) {
+            Segment old = segments.get(previous.segmentId);
+            if (old != null) {
+                old.deadBytes.addAndGet(HEADER_SIZE + previous.length);
+            }
+        }
+    }
+
+    private Segment segmentFor(long length) throws IOException {
+        if (active.size > 0 && active.size + HEADER_SIZE + length > segmentSize) {
+            logger.debug("Avatar pack segment {} is full, starting a new one", active.id);
+            active.seal();
+            active = openSegment(active.id + 1);
+        }
+        return active;
+    }
+
+    private Segment openSegment(int id) throws IOException {
+        Path path = directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        Segment segment = new Segment(id, path);
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private void open() {
+        if (opened) {
+            return;
+        }
+        synchronized (this) {
+            if (opened) {
+                return;
+            }
+            try {
+                Files.createDirectories(directory);
+                try (Stream<Path> files = Files.list(directory)) {
+                    for (Path file : files.filter(f -> f.getFileName().toString().endsWith(SEGMENT_SUFFIX)).toList()) {
+                        String name = file.getFileName().toString();
+                        openSegment(Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                    }
+                }
+                for (Segment segment : segments.values()) {
+                    recover(segment);
+                }
+                active = segments.isEmpty() ? openSegment(1) : segments.lastEntry().getValue();
+                logger.info("Opened avatar pack store with {} segments and {} entries", segments.size(), index.size());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            opened = true;
+        }
+    }
+
+    private void recover(Segment segment) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        byte[] raw = new byte[HASH_SIZE];
+        long position = 0;
+        while (position + HEADER_SIZE <= segment.size) {
+            header.clear();
+            segment.channel.read(header, position);
+            header.flip();
+            long length = header.getLong(4 + HASH_SIZE);
+            if (header.getInt(0) != RECORD_MAGIC || position + HEADER_SIZE + Math.max(length, 0) > segment.size) {
+                break;
+            }
+            header.get(4, raw);
+            String hash = HexFormat.of().formatHex(raw);
+            if (length >= 0) {
+                publish(hash, segment, position + HEADER_SIZE, length);
+            } else {
+                Entry entry = index.get(hash);
+                if (entry != null && entry.segmentId == (int) (-1L - length)) {
+                    index.remove(hash);
+                    segments.get(entry.segmentId).deadBytes.addAndGet(HEADER_SIZE + entry.length);
+                }
+            }
+            position += HEADER_SIZE + Math.max(length, 0);
+        }
+        if (position < segment.size) {
+            logger.warn("Truncating torn tail of avatar pack segment {} at {}", segment.id, position);
+            segment.channel.truncate(position);
+            segment.size = position;
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        compactor.shutdownNow();
+        synchronized (this) {
+            for (Segment segment : segments.values()) {
+                try {
+                    segment.channel.close();
+                } catch (IOException e) {
+                    logger.warn("Failed to close avatar pack segment {}", segment.id, e);
+                }
+            }
+            segments.clear();
+            index.clear();
+        }
+    }
+
+    @FunctionalInterface
+    private interface RecordWriter {
+        void write(FileChannel channel, long position) throws IOException;
+    }
+
+    private static final class Entry {
+        private final int segmentId;
+        private final long offset;
+        private final long length;
+
+        private Entry(int segmentId, long offset, long length) {
+            this.segmentId = segmentId;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private static final class Segment {
+        private final int id;
+        private final Path path;
+        private final FileChannel channel;
+        private final AtomicLong deadBytes = new AtomicLong();
+        private final AtomicInteger references = new AtomicInteger(1);
+        private final ConcurrentSkipListMap<Long, MappedByteBuffer> regions = new ConcurrentSkipListMap<>();
+        private volatile long size;
+        private long mappedEnd;
+
+        private Segment(int id, Path path) throws IOException {
+            this.id = id;
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.size = channel.size();
+        }
+
+        private long append(String hash, long length, RecordWriter data) throws IOException {
+            long start = size;
+            long offset = start + HEADER_SIZE;
+            try {
+                write(channel, ByteBuffer.allocate(HEADER_SIZE), start);
+                if (data != null) {
+                    data.write(channel, offset);
+                    channel.force(false);
+                }
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                        .putInt(RECORD_MAGIC)
+                        .put(HexFormat.of().parseHex(hash))
+                        .putLong(length)
+                        .flip();
+                write(channel, header, start);
+                channel.force(false);
+            } catch (IOException | RuntimeException e) {
+                try {
+                    channel.truncate(start);
+                } catch (IOException truncateFailure) {
+                    e.addSuppressed(truncateFailure);
+                }
+                throw e;
+            }
+            size = offset + Math.max(length, 0);
+            return offset;
+        }
+
+        private static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        }
+
+        // compaction drops the store's own reference; the last one released closes and deletes the file
+        private boolean acquire() {
+            int current;
+            do {
+                current = references.get();
+                if (current == 0) {
+                    return false;
+                }
+            } while (!references.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        private boolean release() {
+            return references.decrementAndGet() == 0;
+        }
+
+        // records are appended whole, so each one lies inside a single region and a miss maps only the new tail
+        private ByteBuffer slice(long offset, long length) throws IOException {
+            Map.Entry<Long, MappedByteBuffer> region = regions.floorEntry(offset);
+            if (region == null || region.getKey() + region.getValue().capacity() < offset + length) {
+                region = map(offset, offset + length);
+            }
+            return region.getValue().slice((int) (offset - region.getKey()), (int) length).asReadOnlyBuffer();
+        }
+
+        private synchronized Map.Entry<Long, MappedByteBuffer> map(long offset, long end) throws IOException {
+            long tail = size;
+            if (mappedEnd < end) {
+                regions.put(mappedEnd, channel.map(FileChannel.MapMode.READ_ONLY, mappedEnd, tail - mappedEnd));
+                mappedEnd = tail;
+            }
+            return regions.floorEntry(offset);
+        }
+
+        // a full segment no longer grows, so its regions collapse into one mapping; handed out slices stay valid
+        private synchronized void seal() throws IOException {
+            if (mappedEnd > 0 && (regions.size() > 1 || mappedEnd < size)) {
+                regions.put(0L, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+                regions.tailMap(0L, false).clear();
+                mappedEnd = size;
+            }
+        }
+
+        private double garbageRatio() {
+            return size == 0 ? 0 : (double) deadBytes.get() / size;
+        }
+    }
+}
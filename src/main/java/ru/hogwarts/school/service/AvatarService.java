@@ -3,39 +3,113 @@ package ru.hogwarts.school.service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 import ru.hogwarts.school.exceptions.AvatarNotFoundException;
 import ru.hogwarts.school.exceptions.ImageReadFailureException;
+import ru.hogwarts.school.exceptions.InvalidPageSizeException;
 import ru.hogwarts.school.exceptions.StudentNotFoundException;
 import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.model.AvatarContent;
+import ru.hogwarts.school.model.AvatarStorageEngine;
+import ru.hogwarts.school.model.AvatarStorageMode;
 import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.model.dto.AvatarImageHeader;
+import ru.hogwarts.school.model.dto.AvatarInfo;
+import ru.hogwarts.school.model.dto.AvatarPage;
+import ru.hogwarts.school.model.dto.AvatarUploadResult;
 import ru.hogwarts.school.model.dto.AvatarView;
+import ru.hogwarts.school.model.dto.SpooledAvatar;
+import ru.hogwarts.school.model.dto.StoredAvatarFile;
+import ru.hogwarts.school.repository.AvatarContentRepository;
 import ru.hogwarts.school.repository.AvatarRepository;
 import ru.hogwarts.school.repository.StudentRepository;
+import ru.hogwarts.school.service.AvatarCache.CachedAvatar;
 
-import java.io.*;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class AvatarService {
+    private static final int TRANSFER_BUFFER_SIZE = 8 * 1024;
+
+    private static final ThreadLocal<ByteBuffer> TRANSFER_BUFFER =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocate(TRANSFER_BUFFER_SIZE));
+
+    private static final String SPOOL_EXTENSION = ".upload";
+
+    private static final String AVATAR_CURSOR = "avatar";
+
     @Value("${image.path}")
     private Path pathDir;
+    @Value("${avatar.storage.mode:BOTH}")
+    private AvatarStorageMode storageMode = AvatarStorageMode.BOTH;
+    @Value("${avatar.storage.engine:FILES}")
+    private AvatarStorageEngine storageEngine = AvatarStorageEngine.FILES;
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int chunkSize = 50;
+    @Value("${avatar.page.max-size:500}")
+    private int maxPageSize = 500;
     private final AvatarRepository avatarRepository;
+    private final AvatarContentRepository avatarContentRepository;
     private final StudentRepository studentRepository;
+    private final AvatarCache avatarCache;
+    private final AvatarThumbnailService thumbnailService;
+    private final List<AvatarStore> stores;
+    private final AvatarImageValidator imageValidator;
+    private final TransactionTemplate transactionTemplate;
+    private final AvatarBlobStreamer blobStreamer;
+    private final Lock[] contentLocks = new Lock[64];
 
-    public AvatarService(AvatarRepository avatarRepository, StudentRepository studentRepository) {
+    public AvatarService(AvatarRepository avatarRepository, AvatarContentRepository avatarContentRepository,
+                         StudentRepository studentRepository, AvatarCache avatarCache,
+                         AvatarThumbnailService thumbnailService, List<AvatarStore> stores,
+                         AvatarImageValidator imageValidator, TransactionTemplate transactionTemplate,
+                         AvatarBlobStreamer blobStreamer) {
         this.avatarRepository = avatarRepository;
+        this.avatarContentRepository = avatarContentRepository;
         this.studentRepository = studentRepository;
+        this.avatarCache = avatarCache;
+        this.thumbnailService = thumbnailService;
+        this.stores = stores;
+        this.imageValidator = imageValidator;
+        this.transactionTemplate = transactionTemplate;
+        this.blobStreamer = blobStreamer;
+        Arrays.setAll(contentLocks, i -> new ReentrantLock());
     }
 
     Logger logger = LoggerFactory.getLogger(AvatarService.class);
 
+    @Transactional
     public long uploadAvatar(long studentId, MultipartFile file) throws IOException {
         logger.info("Method uploadAvatar was invoked");
         Student student = studentRepository.findById(studentId).orElseThrow(() -> {
@@ -43,38 +117,352 @@ public class AvatarService {
             logger.error(errorMessage);
             return new StudentNotFoundException("Студент с id" + studentId + " не найден");
         });
-        Path path = saveAvatarLocal(file);
-
-        Avatar avatar = new Avatar(path.toString(), file.getSize(), file.getContentType(), file.getBytes(), student);
+        imageValidator.checkSize(file.getSize());
+        Avatar avatar = new Avatar(null, 0, file.getContentType(), null, student);
+        if (storageMode.storesOnDisk()) {
+            StoredAvatarFile stored = saveAvatarLocal(file);
+            avatar.setMediaType(stored.getMediaType());
+            storeContent(avatar, stored);
+        } else {
+            byte[] data = file.getBytes();
+            AvatarImageHeader header = imageValidator.validate(new BufferedInputStream(new ByteArrayInputStream(data)));
+            avatar.setMediaType(header.getMediaType().toString());
+            String hash = HexFormat.of().formatHex(newContentDigest().digest(data));
+            retainContent(hash, data.length, null, data);
+            setContent(avatar, hash, data.length, null);
+        }
 
         Avatar oldAvatar = avatarRepository.findByStudentId(studentId);
         if (oldAvatar != null) {
-            logger.info("Avatar already exists, deleting outdated avatar");
-            Files.delete(Path.of(oldAvatar.getFilePath()));
+            logger.info("Avatar already exists, releasing outdated avatar");
+            releaseContent(oldAvatar);
             avatar.setId(oldAvatar.getId());
         }
         return avatarRepository.save(avatar).getId();
     }
 
-    private String getExtension(String string) {
-        logger.info("Method getExtension was invoked");
-        return string.substring(string.lastIndexOf("."));
+    public List<AvatarUploadResult> saveAvatars(List<SpooledAvatar> uploads) {
+        logger.info("Method saveAvatars was invoked");
+        AvatarUploadResult[] results = new AvatarUploadResult[uploads.size()];
+        for (int from = 0; from < uploads.size(); from += chunkSize) {
+            List<SpooledAvatar> chunk = uploads.subList(from, Math.min(from + chunkSize, uploads.size()));
+            int offset = from;
+            try {
+                transactionTemplate.executeWithoutResult(status -> saveChunk(chunk, results, offset));
+            } catch (RuntimeException e) {
+                logger.error("Failed to store a chunk of {} avatars", chunk.size(), e);
+                for (int i = 0; i < chunk.size(); i++) {
+                    SpooledAvatar upload = chunk.get(i);
+                    deleteQuietly(upload.getFile().getPath());
+                    results[offset + i] = AvatarUploadResult.failed(upload.getName(), upload.getStudentId(),
+                            "Не удалось сохранить аватар");
+                }
+            }
+        }
+        return Arrays.asList(results);
     }
 
-    private Path saveAvatarLocal(MultipartFile file) throws IOException {
-        logger.info("Method saveAvatarLocal was invoked");
-        createDirectoryIfNotExists();
+    private void saveChunk(List<SpooledAvatar> chunk, AvatarUploadResult[] results, int offset) {
+        Set<Long> studentIds = chunk.stream().map(SpooledAvatar::getStudentId).collect(Collectors.toSet());
+        Map<Long, Student> students = studentRepository.findAllById(studentIds).stream()
+                .collect(Collectors.toMap(Student::getId, Function.identity()));
+        Map<Long, Avatar> avatars = avatarRepository.findAllByStudentIdIn(studentIds).stream()
+                .collect(Collectors.toMap(avatar -> avatar.getStudent().getId(), Function.identity()));
+        lockContent(Stream.concat(chunk.stream().map(upload -> upload.getFile().getContentHash()),
+                avatars.values().stream().map(Avatar::getContentHash)));
+
+        Avatar[] saved = new Avatar[chunk.size()];
+        List<Runnable> releases = new ArrayList<>();
+        Set<Long> updated = new LinkedHashSet<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            SpooledAvatar upload = chunk.get(i);
+            long studentId = upload.getStudentId();
+            Student student = students.get(studentId);
+            if (student == null) {
+                logger.warn("Skipping avatar {} of unknown student {}", upload.getName(), studentId);
+                deleteQuietly(upload.getFile().getPath());
+                results[offset + i] = AvatarUploadResult.failed(upload.getName(), studentId,
+                        "Студент с id " + studentId + " не найден");
+                continue;
+            }
+            Avatar existing = avatars.get(studentId);
+            Avatar avatar = existing != null ? existing : new Avatar(null, 0, null, null, student);
+            String oldHash = avatar.getContentHash();
+            String oldLocation = avatar.getFilePath();
+            try {
+                saveContent(upload, avatar);
+            } catch (IOException e) {
+                logger.error("Failed to store avatar {}", upload.getName(), e);
+                deleteQuietly(upload.getFile().getPath());
+                results[offset + i] = AvatarUploadResult.failed(upload.getName(), studentId, "Не удалось сохранить файл");
+                continue;
+            }
+            if (existing != null) {
+                releases.add(() -> releaseContent(oldHash, oldLocation));
+            }
+            avatars.put(studentId, avatar);
+            updated.add(studentId);
+            saved[i] = avatar;
+        }
+
+        releases.forEach(Runnable::run);
+        avatarRepository.saveAll(updated.stream().map(avatars::get).toList());
+        avatarRepository.flush();
+        for (int i = 0; i < chunk.size(); i++) {
+            if (saved[i] != null) {
+                SpooledAvatar upload = chunk.get(i);
+                results[offset + i] = AvatarUploadResult.uploaded(upload.getName(), upload.getStudentId(), saved[i].getId());
+            }
+        }
+    }
+
+    private void saveContent(SpooledAvatar upload, Avatar avatar) throws IOException {
+        StoredAvatarFile file = upload.getFile();
+        String mediaType = file.getMediaType() != null ? file.getMediaType() : upload.getMediaType();
+        if (storageMode.storesOnDisk()) {
+            storeContent(avatar, file);
+        } else {
+            byte[] data = Files.readAllBytes(file.getPath());
+            deleteQuietly(file.getPath());
+            retainContent(file.getContentHash(), data.length, null, data);
+            setContent(avatar, file.getContentHash(), data.length, null);
+        }
+        avatar.setMediaType(mediaType);
+        avatar.setData(null);
+    }
+
+    private void storeContent(Avatar avatar, StoredAvatarFile spooledFile) throws IOException {
+        String hash = spooledFile.getContentHash();
+        try {
+            retainContent(hash, spooledFile.getSize(), spooledFile.getPath(), null);
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(spooledFile.getPath());
+            throw e;
+        }
+        setContent(avatar, hash, spooledFile.getSize(), contentLocation(hash));
+        Path contentFile = store().file(hash);
+        if (contentFile != null) {
+            TransactionCallbacks.afterCommit(() -> thumbnailService.scheduleRenditions(contentFile));
+        }
+    }
+
+    private void setContent(Avatar avatar, String hash, long size, String location) {
+        avatar.setFilePath(location);
+        avatar.setFileSize(size);
+        avatar.setContentHash(hash);
+        avatar.setStorage(storageMode);
+        avatar.setUpdatedAt(Instant.now());
+    }
+
+    private void retainContent(String hash, long size, Path spooledFile, byte[] data) throws IOException {
+        Lock lock = contentLock(hash);
+        lock.lock();
+        TransactionCallbacks.unlockAfterCompletion(lock);
+
+        byte[] dbData = null;
+        if (storageMode.storesInDb() && !avatarContentRepository.hasData(hash)) {
+            dbData = data != null ? data : Files.readAllBytes(spooledFile);
+        }
+        if (spooledFile != null) {
+            AvatarStore store = store();
+            if (!store.contains(hash)) {
+                TransactionCallbacks.afterRollback(() -> deleteContentFileIfUnused(hash));
+            }
+            store.put(hash, spooledFile);
+        }
+
+        if (avatarContentRepository.retain(hash) == 0) {
+            logger.debug("Storing new avatar content {}", hash);
+            avatarContentRepository.save(new AvatarContent(hash, size, dbData));
+        } else if (dbData != null) {
+            AvatarContent content = avatarContentRepository.getReferenceById(hash);
+            content.setData(dbData);
+        }
+    }
+
+    private void lockContent(Stream<String> hashes) {
+        hashes.filter(Objects::nonNull)
+                .mapToInt(this::contentLockIndex)
+                .distinct()
+                .sorted()
+                .forEach(index -> {
+                    contentLocks[index].lock();
+                    TransactionCallbacks.unlockAfterCompletion(contentLocks[index]);
+                });
+    }
+
+    private void releaseContent(Avatar avatar) {
+        releaseContent(avatar.getContentHash(), avatar.getFilePath());
+    }
+
+    private void releaseContent(String hash, String location) {
+        if (hash != null && avatarContentRepository.release(hash) > 0) {
+            if (avatarContentRepository.deleteIfUnreferenced(hash) > 0) {
+                logger.debug("Avatar content {} is no longer referenced", hash);
+                TransactionCallbacks.afterCommit(() -> {
+                    avatarCache.invalidate(hash);
+                    deleteContentFileIfUnused(hash);
+                });
+            }
+        } else if (location != null && storeFor(location, hash) == null) {
+            Path path = Path.of(location);
+            TransactionCallbacks.afterCommit(() -> {
+                if (hash != null) {
+                    avatarCache.invalidate(hash);
+                }
+                deleteQuietly(path);
+            });
+        }
+    }
+
+    void writeContentFile(String hash, byte[] data) throws IOException {
+        Lock lock = contentLock(hash);
+        lock.lock();
+        try {
+            AvatarStore store = store();
+            store.put(hash, data);
+            Path contentFile = store.file(hash);
+            if (contentFile != null) {
+                thumbnailService.scheduleRenditions(contentFile);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void deleteContentFileIfUnused(String hash) {
+        Lock lock = contentLock(hash);
+        lock.lock();
+        try {
+            if (!avatarRepository.existsByContentHashAndFilePathIsNotNull(hash)) {
+                for (AvatarStore store : stores) {
+                    Path contentFile = store.file(hash);
+                    store.delete(hash);
+                    if (contentFile != null) {
+                        thumbnailService.deleteRenditions(contentFile);
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Failed to delete avatar file {}", path, e);
+        }
+    }
+
+    String contentLocation(String hash) {
+        return store().location(hash);
+    }
 
+    boolean hasContentFile(String hash) {
+        return store().contains(hash);
+    }
+
+    boolean isContentLocation(String location, String hash) {
+        return storeFor(location, hash) != null;
+    }
+
+    byte[] readAvatarFile(String location, String hash) throws IOException {
+        AvatarStore store = storeFor(location, hash);
+        return store != null ? store.get(hash) : Files.readAllBytes(Path.of(location));
+    }
+
+    private AvatarStore store() {
+        return stores.stream()
+                .filter(store -> store.getEngine() == storageEngine)
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Avatar store " + storageEngine + " is not available"));
+    }
+
+    private AvatarStore storeFor(String location, String hash) {
+        if (hash == null) {
+            return null;
+        }
+        return stores.stream()
+                .filter(store -> store.isLocationOf(location, hash))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private Lock contentLock(String hash) {
+        return contentLocks[contentLockIndex(hash)];
+    }
+
+    private int contentLockIndex(String hash) {
+        return Math.floorMod(hash.hashCode(), contentLocks.length);
+    }
+
+    private StoredAvatarFile saveAvatarLocal(MultipartFile file) throws IOException {
+        logger.info("Method saveAvatarLocal was invoked");
         if (file.getOriginalFilename() == null) {
             logger.error("Invalid image");
             throw new RuntimeException("Некорректное изображение");
         }
-        Path path = Path.of(pathDir.toString(), UUID.randomUUID() + getExtension(file.getOriginalFilename()));
+        try (InputStream in = file.getInputStream()) {
+            return spoolAvatarFile(in);
+        }
+    }
+
+    StoredAvatarFile spoolAvatarFile(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in);
+        AvatarImageHeader header = imageValidator.validate(buffered);
+        StoredAvatarFile file = writeAvatarFile(imageValidator.limit(buffered), SPOOL_EXTENSION);
+        return new StoredAvatarFile(file.getPath(), file.getSize(), file.getContentHash(), header.getMediaType().toString());
+    }
+
+    StoredAvatarFile inspectAvatarFile(Path path) throws IOException {
+        try (BufferedInputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+            AvatarImageHeader header = imageValidator.validate(in);
+            MessageDigest digest = newContentDigest();
+            byte[] chunk = TRANSFER_BUFFER.get().array();
+            long size = 0;
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                digest.update(chunk, 0, read);
+                size += read;
+            }
+            return new StoredAvatarFile(path, size, HexFormat.of().formatHex(digest.digest()),
+                    header.getMediaType().toString());
+        }
+    }
 
-        try (BufferedInputStream bis = new BufferedInputStream(new ByteArrayInputStream(file.getBytes())); BufferedOutputStream bos = new BufferedOutputStream(new FileOutputStream(path.toFile()))) {
-            bis.transferTo(bos);
+    StoredAvatarFile writeAvatarFile(InputStream in, String extension) throws IOException {
+        createDirectoryIfNotExists();
+        Path path = Path.of(pathDir.toString(), UUID.randomUUID() + extension);
+
+        MessageDigest digest = newContentDigest();
+        ByteBuffer buffer = TRANSFER_BUFFER.get();
+        byte[] chunk = buffer.array();
+        long size = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                digest.update(chunk, 0, read);
+                buffer.clear().limit(read);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                size += read;
+            }
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(path);
+            throw e;
+        }
+        return new StoredAvatarFile(path, size, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    private MessageDigest newContentDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
         }
-        return path;
     }
 
     private void createDirectoryIfNotExists() {
@@ -90,32 +478,111 @@ public class AvatarService {
         }
     }
 
-    public Avatar getAvatarFromDb(long studentId) {
-        logger.info("Method getAvatarFromDb was invoked");
-        Avatar avatar = avatarRepository.findByStudentId(studentId);
-        if (avatar == null) {
+    public AvatarInfo getAvatarInfo(long studentId) {
+        logger.info("Method getAvatarInfo was invoked");
+        AvatarInfo info = avatarRepository.findInfoByStudentId(studentId);
+        if (info == null) {
             logger.error("Avatar for student with id: {} not found", studentId);
             throw new AvatarNotFoundException("Аватар не найден");
         }
-        return avatar;
+        return info;
     }
 
     public AvatarView getAvatarFromDirectory(long studentId) {
         logger.info("Method getAvatarFromDirectory was invoked");
-        Avatar avatar = avatarRepository.findByStudentId(studentId);
-        if (avatar == null) {
-            logger.error("Avatar for student with id: {} not found", studentId);
+        return getAvatarFile(getAvatarInfo(studentId));
+    }
+
+    public AvatarView getAvatarFile(AvatarInfo avatar) {
+        logger.info("Method getAvatarFile was invoked");
+        if (avatar.getFilePath() == null) {
+            logger.error("Avatar with id: {} is not stored on disk", avatar.getId());
             throw new AvatarNotFoundException("Аватар не найден");
         }
-        byte[] bytes = null;
+        MediaType mediaType = MediaType.parseMediaType(avatar.getMediaType());
+        AvatarStore store = storeFor(avatar.getFilePath(), avatar.getContentHash());
         try {
-            bytes = Files.readAllBytes(Path.of(avatar.getFilePath()));
+            if (store != null) {
+                long lastModified = avatar.getUpdatedAt() == null ? -1 : avatar.getUpdatedAt().toEpochMilli();
+                AvatarView view = store.view(avatar.getContentHash(), mediaType, lastModified);
+                if (view == null) {
+                    logger.error("Avatar with id: {} is missing from {} store", avatar.getId(), store.getEngine());
+                    throw new AvatarNotFoundException("Аватар не найден");
+                }
+                return view;
+            }
+            Path path = Path.of(avatar.getFilePath());
+            long lastModified = avatar.getUpdatedAt() != null
+                    ? avatar.getUpdatedAt().toEpochMilli()
+                    : Files.getLastModifiedTime(path).toMillis();
+            return new AvatarView(mediaType, path, Files.size(path), lastModified, avatar.getContentHash());
         } catch (IOException e) {
             String errorMessage = String.format("Не удалось прочитать файл с изображением по пути: %s. %s", avatar.getFilePath(), e.getMessage());
             logger.error("Failed to read image file");
             throw new ImageReadFailureException(errorMessage, e);
         }
-        return new AvatarView(MediaType.parseMediaType(avatar.getMediaType()), bytes);
+    }
+
+    public AvatarView getRendition(AvatarInfo avatar, int size) {
+        logger.info("Method getRendition was invoked");
+        if (avatar.getFilePath() == null) {
+            return null;
+        }
+        AvatarStore store = storeFor(avatar.getFilePath(), avatar.getContentHash());
+        Path original = store == null ? null : store.file(avatar.getContentHash());
+        if (original == null) {
+            return null;
+        }
+        Path rendition = thumbnailService.findRendition(original, size);
+        if (rendition == null) {
+            logger.debug("No {}px rendition of avatar {}, serving the original", size, avatar.getId());
+            return null;
+        }
+        try {
+            long lastModified = avatar.getUpdatedAt() != null
+                    ? avatar.getUpdatedAt().toEpochMilli()
+                    : Files.getLastModifiedTime(rendition).toMillis();
+            return new AvatarView(thumbnailService.mediaTypeOf(rendition), rendition, Files.size(rendition),
+                    lastModified, rendition.getFileName().toString());
+        } catch (IOException e) {
+            logger.warn("Failed to read rendition {}", rendition, e);
+            return null;
+        }
+    }
+
+    public AvatarView getCachedAvatar(AvatarInfo info, boolean preferDb) {
+        logger.info("Method getCachedAvatar was invoked");
+        String hash = info.getContentHash();
+        if (hash == null) {
+            return null;
+        }
+        boolean fromFile = info.getFilePath() != null && !(preferDb && info.getStorage().storesInDb());
+        Path file = null;
+        if (fromFile) {
+            AvatarStore store = storeFor(info.getFilePath(), hash);
+            file = store == null ? Path.of(info.getFilePath()) : store.file(hash);
+            if (file == null) {
+                return null;
+            }
+        }
+        CachedAvatar cached = avatarCache.get(hash);
+        if (cached == null) {
+            try {
+                if (file != null) {
+                    cached = avatarCache.put(hash, file, Files.size(file));
+                } else if (avatarCache.accepts(info.getFileSize())) {
+                    cached = avatarCache.put(hash, info.getFileSize(), out -> blobStreamer.stream(info, out));
+                }
+            } catch (IOException e) {
+                logger.warn("Failed to cache avatar content {}", hash, e);
+                return null;
+            }
+        }
+        if (cached == null) {
+            return null;
+        }
+        long lastModified = info.getUpdatedAt() == null ? -1 : info.getUpdatedAt().toEpochMilli();
+        return new AvatarView(MediaType.parseMediaType(info.getMediaType()), cached, lastModified, hash);
     }
 
     public void setPathDir(Path pathDir) {
@@ -123,11 +590,46 @@ public class AvatarService {
         this.pathDir = pathDir;
     }
 
-    public List<Avatar> getAvatars(Integer pageNumber, Integer pageSize) {
+    public void setStorageMode(AvatarStorageMode storageMode) {
+        logger.info("Method setStorageMode was invoked");
+        this.storageMode = storageMode;
+    }
+
+    public AvatarStorageMode getStorageMode() {
+        return storageMode;
+    }
+
+    public void setStorageEngine(AvatarStorageEngine storageEngine) {
+        logger.info("Method setStorageEngine was invoked");
+        this.storageEngine = storageEngine;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        logger.info("Method setChunkSize was invoked");
+        this.chunkSize = chunkSize;
+    }
+
+    public AvatarPage getAvatarsAfter(String after, int pageSize) {
+        logger.info("Method getAvatarsAfter was invoked");
+        if (pageSize <= 0) {
+            logger.error("Invalid page size");
+            throw new InvalidPageSizeException("Переданы некорректные параметры страницы");
+        }
+        int limit = Math.min(pageSize, maxPageSize);
+        long afterId = PageCursors.decode(AVATAR_CURSOR, after);
+        List<AvatarInfo> avatars = avatarRepository.findInfoAfter(afterId, Limit.of(limit + 1));
+        if (avatars.size() <= limit) {
+            return new AvatarPage(avatars, null);
+        }
+        List<AvatarInfo> page = avatars.subList(0, limit);
+        return new AvatarPage(page, PageCursors.encode(AVATAR_CURSOR, page.get(limit - 1).getId()));
+    }
+
+    public List<AvatarInfo> getAvatars(Integer pageNumber, Integer pageSize) {
         logger.info("Method getAvatars was invoked");
         if (pageSize > 0 && pageNumber > 0) {
             PageRequest pageRequest = PageRequest.of(pageNumber - 1, pageSize);
-            return avatarRepository.findAll(pageRequest).getContent();
+            return avatarRepository.findAllInfo(pageRequest);
         } else {
             logger.error("Invalid page parameters");
             throw new IllegalArgumentException("Переданы некорректные параметры страницы");
@@ -0,0 +1,174 @@
+package ru.hogwarts.school.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.exceptions.MigrationInProgressException;
+import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.model.AvatarContent;
+import ru.hogwarts.school.model.AvatarStorageMode;
+import ru.hogwarts.school.model.dto.AvatarMigrationStatus;
+import ru.hogwarts.school.model.dto.StoredAvatarFile;
+import ru.hogwarts.school.repository.AvatarContentRepository;
+import ru.hogwarts.school.repository.AvatarRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class AvatarStorageMigrationService {
+    private final AvatarRepository avatarRepository;
+    private final AvatarContentRepository avatarContentRepository;
+    private final AvatarService avatarService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "avatar-storage-migration");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong migrated = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile AvatarStorageMode target;
+    private volatile long lastId;
+
+    Logger logger = LoggerFactory.getLogger(AvatarStorageMigrationService.class);
+
+    public AvatarStorageMigrationService(AvatarRepository avatarRepository, AvatarContentRepository avatarContentRepository,
+                                         AvatarService avatarService, TransactionTemplate transactionTemplate) {
+        this.avatarRepository = avatarRepository;
+        this.avatarContentRepository = avatarContentRepository;
+        this.avatarService = avatarService;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public AvatarMigrationStatus start(AvatarStorageMode target, int batchSize) {
+        logger.info("Method start was invoked");
+        if (batchSize <= 0) {
+            logger.error("Invalid migration batch size: {}", batchSize);
+            throw new IllegalArgumentException("Некорректный размер пакета");
+        }
+        if (!running.compareAndSet(false, true)) {
+            logger.warn("Avatar storage migration is already running");
+            throw new MigrationInProgressException("Миграция хранилища аватаров уже выполняется");
+        }
+        this.target = target;
+        migrated.set(0);
+        failed.set(0);
+        lastId = 0;
+        executor.execute(() -> {
+            try {
+                migrate(target, batchSize);
+                logger.info("Avatar storage migration to {} finished: {} migrated, {} failed", target, migrated.get(), failed.get());
+            } catch (RuntimeException e) {
+                logger.error("Avatar storage migration to {} stopped", target, e);
+            } finally {
+                running.set(false);
+            }
+        });
+        return getStatus();
+    }
+
+    public AvatarMigrationStatus getStatus() {
+        return new AvatarMigrationStatus(target, running.get(), migrated.get(), failed.get(), lastId);
+    }
+
+    void migrate(AvatarStorageMode target, int batchSize) {
+        long afterId = 0;
+        List<Long> ids;
+        while (!(ids = avatarRepository.findIdsToMigrate(afterId, target, PageRequest.of(0, batchSize))).isEmpty()) {
+            migrateBatch(ids, target);
+            afterId = ids.get(ids.size() - 1);
+            lastId = afterId;
+        }
+    }
+
+    private void migrateBatch(List<Long> ids, AvatarStorageMode target) {
+        logger.debug("Migrating avatars {}..{} to {}", ids.get(0), ids.get(ids.size() - 1), target);
+        List<Runnable> onRollback = new ArrayList<>();
+        List<Runnable> onCommit = new ArrayList<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Avatar avatar : avatarRepository.findAllById(ids)) {
+                    migrateAvatar(avatar, target, onRollback, onCommit);
+                }
+            });
+        } catch (RuntimeException e) {
+            logger.error("Failed to migrate avatars {}..{}", ids.get(0), ids.get(ids.size() - 1), e);
+            failed.addAndGet(ids.size());
+            onRollback.forEach(Runnable::run);
+            return;
+        }
+        migrated.addAndGet(ids.size());
+        onCommit.forEach(Runnable::run);
+    }
+
+    private void migrateAvatar(Avatar avatar, AvatarStorageMode target, List<Runnable> onRollback, List<Runnable> onCommit) {
+        String hash = avatar.getContentHash();
+        AvatarContent content = hash == null ? null : avatarContentRepository.findById(hash).orElse(null);
+        try {
+            if (target.storesOnDisk() && avatar.getFilePath() == null) {
+                byte[] data = content != null && content.getData() != null ? content.getData() : avatar.getData();
+                if (content != null) {
+                    if (!avatarService.hasContentFile(hash)) {
+                        avatarService.writeContentFile(hash, data);
+                        onRollback.add(() -> avatarService.deleteContentFileIfUnused(hash));
+                    }
+                    avatar.setFilePath(avatarService.contentLocation(hash));
+                } else {
+                    StoredAvatarFile file = avatarService.writeAvatarFile(new ByteArrayInputStream(data),
+                            extensionOf(avatar.getMediaType()));
+                    onRollback.add(() -> avatarService.deleteQuietly(file.getPath()));
+                    avatar.setFilePath(file.getPath().toString());
+                }
+            }
+            if (target.storesInDb()) {
+                if (content != null && content.getData() == null && avatar.getData() == null) {
+                    content.setData(avatarService.readAvatarFile(avatar.getFilePath(), hash));
+                } else if (content == null && avatar.getData() == null) {
+                    avatar.setData(avatarService.readAvatarFile(avatar.getFilePath(), hash));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (!target.storesOnDisk() && avatar.getFilePath() != null) {
+            String location = avatar.getFilePath();
+            avatar.setFilePath(null);
+            if (content != null && avatarService.isContentLocation(location, hash)) {
+                onCommit.add(() -> avatarService.deleteContentFileIfUnused(hash));
+            } else {
+                onCommit.add(() -> avatarService.deleteQuietly(Path.of(location)));
+            }
+        }
+        if (!target.storesInDb()) {
+            avatar.setData(null);
+            if (content != null && !avatarRepository.existsOtherByContentHashAndStorageNot(hash, avatar.getId(), AvatarStorageMode.DISK)) {
+                content.setData(null);
+            }
+        }
+        avatar.setStorage(target);
+    }
+
+    private String extensionOf(String mediaType) {
+        return "." + MediaType.parseMediaType(mediaType).getSubtype();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,38 @@
+package ru.hogwarts.school.service;
+
+import org.springframework.http.MediaType;
+import ru.hogwarts.school.model.AvatarStorageEngine;
+import ru.hogwarts.school.model.dto.AvatarView;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+public interface AvatarStore {
+
+    AvatarStorageEngine getEngine();
+
+    String location(String hash);
+
+    boolean contains(String hash);
+
+    void put(String hash, Path source) throws IOException;
+
+    void put(String hash, byte[] data) throws IOException;
+
+    byte[] get(String hash) throws IOException;
+
+    InputStream stream(String hash) throws IOException;
+
+    AvatarView view(String hash, MediaType mediaType, long lastModified) throws IOException;
+
+    void delete(String hash);
+
+    default boolean isLocationOf(String location, String hash) {
+        return location.equals(location(hash));
+    }
+
+    default Path file(String hash) {
+        return null;
+    }
+}
@@ -0,0 +1,179 @@
+package ru.hogwarts.school.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+public class AvatarThumbnailService {
+    private static final String JPEG = "jpg";
+    private static final String PNG = "png";
+
+    private final List<Integer> sizes;
+    private final ThreadPoolExecutor executor;
+
+    Logger logger = LoggerFactory.getLogger(AvatarThumbnailService.class);
+
+    public AvatarThumbnailService(@Value("${avatar.thumbnails.sizes:48,128,512}") List<Integer> sizes,
+                                  @Value("${avatar.thumbnails.threads:2}") int threads,
+                                  @Value("${avatar.thumbnails.queue-capacity:100}") int queueCapacity) {
+        this.sizes = sizes.stream().sorted().toList();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "avatar-thumbnails-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, pool) -> logger.warn("Thumbnail queue is full, renditions will be served from the original"));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public List<Integer> getSizes() {
+        return sizes;
+    }
+
+    public void scheduleRenditions(Path original) {
+        logger.info("Method scheduleRenditions was invoked");
+        executor.execute(() -> {
+            try {
+                createRenditions(original);
+            } catch (IOException | RuntimeException e) {
+                logger.error("Failed to create renditions for {}", original, e);
+            }
+        });
+    }
+
+    public Path findRendition(Path original, int size) {
+        for (int renditionSize : sizes) {
+            if (renditionSize < size) {
+                continue;
+            }
+            for (String format : List.of(JPEG, PNG)) {
+                Path rendition = renditionPath(original, renditionSize, format);
+                if (Files.exists(rendition)) {
+                    return rendition;
+                }
+            }
+        }
+        return null;
+    }
+
+    public MediaType mediaTypeOf(Path rendition) {
+        return rendition.getFileName().toString().endsWith("." + PNG) ? MediaType.IMAGE_PNG : MediaType.IMAGE_JPEG;
+    }
+
+    public void deleteRenditions(Path original) {
+        for (int size : sizes) {
+            for (String format : List.of(JPEG, PNG)) {
+                try {
+                    Files.deleteIfExists(renditionPath(original, size, format));
+                } catch (IOException e) {
+                    logger.warn("Failed to delete rendition {} of {}", size, original, e);
+                }
+            }
+        }
+    }
+
+    void createRenditions(Path original) throws IOException {
+        if (Files.notExists(original)) {
+            return;
+        }
+        BufferedImage source = readDownsampled(original);
+        if (source == null) {
+            logger.warn("Avatar {} is not a readable image, skipping renditions", original);
+            return;
+        }
+        boolean alpha = source.getColorModel().hasAlpha();
+        String format = alpha ? PNG : JPEG;
+        for (int size : sizes) {
+            if (Math.max(source.getWidth(), source.getHeight()) <= size) {
+                break;
+            }
+            Path target = renditionPath(original, size, format);
+            if (Files.exists(target)) {
+                continue;
+            }
+            BufferedImage scaled = scale(source, size, alpha);
+            Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+            if (!ImageIO.write(scaled, format, temp.toFile())) {
+                logger.warn("No ImageIO writer for {}", format);
+                Files.deleteIfExists(temp);
+                return;
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            logger.debug("Created {}px rendition of {}", size, original);
+        }
+    }
+
+    private BufferedImage readDownsampled(Path original) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(original.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int longestSide = Math.max(reader.getWidth(0), reader.getHeight(0));
+                int largestRendition = sizes.get(sizes.size() - 1);
+                int subsampling = Math.max(1, longestSide / (largestRendition * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage scale(BufferedImage source, int size, boolean alpha) {
+        double ratio = (double) size / Math.max(source.getWidth(), source.getHeight());
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage step = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = step.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(current, 0, 0, width, height, null);
+            graphics.dispose();
+            current = step;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private Path renditionPath(Path original, int size, String format) {
+        return original.resolveSibling(original.getFileName() + "_" + size + "." + format);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,130 @@
+package ru.hogwarts.school.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import ru.hogwarts.school.model.AvatarStorageEngine;
+import ru.hogwarts.school.model.dto.AvatarView;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+
+@Component
+public class FileSystemAvatarStore implements AvatarStore {
+    private final Path root;
+
+    Logger logger = LoggerFactory.getLogger(FileSystemAvatarStore.class);
+
+    public FileSystemAvatarStore(@Value("${image.path}") Path root) {
+        this.root = root;
+    }
+
+    @Override
+    public AvatarStorageEngine getEngine() {
+        return AvatarStorageEngine.FILES;
+    }
+
+    @Override
+    public String location(String hash) {
+        return shardedPath(hash).toString();
+    }
+
+    @Override
+    public boolean isLocationOf(String location, String hash) {
+        Path path = Path.of(location);
+        return path.equals(shardedPath(hash)) || path.equals(flatPath(hash));
+    }
+
+    @Override
+    public boolean contains(String hash) {
+        return Files.exists(resolve(hash));
+    }
+
+    @Override
+    public void put(String hash, Path source) throws IOException {
+        if (contains(hash)) {
+            logger.debug("Avatar content {} is already on disk", hash);
+            Files.delete(source);
+            return;
+        }
+        Path target = shardedPath(hash);
+        Files.createDirectories(target.getParent());
+        Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public void put(String hash, byte[] data) throws IOException {
+        if (contains(hash)) {
+            return;
+        }
+        Path target = shardedPath(hash);
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(UUID.randomUUID() + ".tmp");
+        Files.write(temp, data);
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public byte[] get(String hash) throws IOException {
+        return Files.readAllBytes(resolve(hash));
+    }
+
+    @Override
+    public InputStream stream(String hash) throws IOException {
+        return Files.newInputStream(resolve(hash));
+    }
+
+    @Override
+    public AvatarView view(String hash, MediaType mediaType, long lastModified) throws IOException {
+        Path path = resolve(hash);
+        try {
+            long modified = lastModified >= 0 ? lastModified : Files.getLastModifiedTime(path).toMillis();
+            return new AvatarView(mediaType, path, Files.size(path), modified, hash);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void delete(String hash) {
+        for (Path path : new Path[]{shardedPath(hash), flatPath(hash)}) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                logger.warn("Failed to delete avatar file {}", path, e);
+            }
+        }
+    }
+
+    @Override
+    public Path file(String hash) {
+        Path path = resolve(hash);
+        return Files.exists(path) ? path : null;
+    }
+
+    private Path resolve(String hash) {
+        Path sharded = shardedPath(hash);
+        if (Files.notExists(sharded)) {
+            Path flat = flatPath(hash);
+            if (Files.exists(flat)) {
+                return flat;
+            }
+        }
+        return sharded;
+    }
+
+    private Path shardedPath(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    private Path flatPath(String hash) {
+        return root.resolve(hash);
+    }
+}
@@ -0,0 +1,37 @@
+package ru.hogwarts.school.service;
+
+import ru.hogwarts.school.exceptions.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+final class PageCursors {
+    private PageCursors() {
+    }
+
+    static String encode(String kind, long id) {
+        String cursor = kind + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static long decode(String kind, String token) {
+        if (token == null || token.isEmpty()) {
+            return 0;
+        }
+        String prefix = kind + ":";
+        String cursor;
+        try {
+            cursor = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Некорректный курсор: " + token);
+        }
+        if (!cursor.startsWith(prefix)) {
+            throw new InvalidCursorException("Некорректный курсор: " + token);
+        }
+        try {
+            return Long.parseLong(cursor.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            throw new InvalidCursorException("Некорректный курсор: " + token);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package ru.hogwarts.school.service;
+
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.exceptions.InvalidStudentBatchException;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.model.dto.NewStudent;
+import ru.hogwarts.school.model.dto.StudentBulkResult;
+import ru.hogwarts.school.model.dto.StudentUpsertResult;
+import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+public class StudentBulkService {
+    private final StudentRepository studentRepository;
+    private final FacultyRepository facultyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final int chunkSize;
+    private final int maxSize;
+
+    private volatile Boolean postgres;
+
+    Logger logger = LoggerFactory.getLogger(StudentBulkService.class);
+
+    public StudentBulkService(StudentRepository studentRepository, FacultyRepository facultyRepository,
+                              TransactionTemplate transactionTemplate, EntityManager entityManager,
+                              JdbcTemplate jdbcTemplate,
+                              @Value("${student.bulk.chunk-size:1000}") int chunkSize,
+                              @Value("${student.bulk.max-size:50000}") int maxSize) {
+        this.studentRepository = studentRepository;
+        this.facultyRepository = facultyRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.chunkSize = chunkSize;
+        this.maxSize = maxSize;
+    }
+
+    public StudentBulkResult createStudents(List<NewStudent> students) {
+        logger.info("Method createStudents was invoked");
+        if (students.isEmpty()) {
+            return new StudentBulkResult(0, 0, 0, 0);
+        }
+        validate(students);
+        checkDuplicateNames(students);
+        Map<Long, Faculty> faculties = resolveFaculties(students);
+
+        long start = System.nanoTime();
+        int created = 0;
+        int chunks = 0;
+        Integer failedAt = null;
+        String error = null;
+        for (int from = 0; from < students.size(); from += chunkSize) {
+            List<NewStudent> chunk = students.subList(from, Math.min(from + chunkSize, students.size()));
+            try {
+                insertChunk(chunk, faculties);
+            } catch (DataIntegrityViolationException e) {
+                logger.error("Students at positions {}..{} violate database constraints", from, from + chunk.size() - 1, e);
+                failedAt = from;
+                error = "Студенты начиная с позиции " + from + " не записаны: нарушены ограничения базы данных";
+                break;
+            }
+            created += chunk.size();
+            chunks++;
+            logger.debug("Committed {} of {} students", created, students.size());
+        }
+
+        long elapsedNanos = Math.max(System.nanoTime() - start, 1);
+        long rowsPerSecond = created * 1_000_000_000L / elapsedNanos;
+        logger.info("Created {} students in {} chunks, {} rows/s", created, chunks, rowsPerSecond);
+        return new StudentBulkResult(created, chunks, elapsedNanos / 1_000_000, rowsPerSecond, failedAt, error);
+    }
+
+    public StudentUpsertResult upsertStudents(List<NewStudent> students) {
+        logger.info("Method upsertStudents was invoked");
+        if (students.isEmpty()) {
+            return new StudentUpsertResult(0, 0, 0, 0, 0);
+        }
+        validate(students);
+        checkDuplicateNames(students);
+        resolveFaculties(students);
+
+        long start = System.nanoTime();
+        int inserted = 0;
+        int updated = 0;
+        int batches = 0;
+        for (int from = 0; from < students.size(); from += chunkSize) {
+            List<NewStudent> chunk = students.subList(from, Math.min(from + chunkSize, students.size()));
+            int[] counts = transactionTemplate.execute(status -> upsertChunk(chunk));
+            inserted += counts[0];
+            updated += counts[1];
+            batches++;
+            logger.debug("Upserted {} of {} students", from + chunk.size(), students.size());
+        }
+
+        int unchanged = students.size() - inserted - updated;
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        logger.info("Upserted {} students in {} batches: {} inserted, {} updated, {} unchanged",
+                students.size(), batches, inserted, updated, unchanged);
+        return new StudentUpsertResult(inserted, updated, unchanged, batches, elapsedMillis);
+    }
+
+    int[] upsertChunk(List<NewStudent> chunk) {
+        PreparedStatementSetter values = new ArgumentPreparedStatementSetter(values(chunk));
+        int[] counts = new int[2];
+        if (isPostgres()) {
+            jdbcTemplate.query(postgresUpsert(chunk.size()), values,
+                    (RowCallbackHandler) rs -> counts[rs.getBoolean(1) ? 0 : 1]++);
+            return counts;
+        }
+        Object[] names = chunk.stream().map(NewStudent::getName).toArray();
+        Integer existing = jdbcTemplate.query("SELECT COUNT(*) FROM student WHERE name IN ("
+                        + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")",
+                new ArgumentPreparedStatementSetter(names), rs -> rs.next() ? rs.getInt(1) : 0);
+        int changed = jdbcTemplate.update(merge(chunk.size()), values);
+        counts[0] = chunk.size() - existing;
+        counts[1] = changed - counts[0];
+        return counts;
+    }
+
+    private String postgresUpsert(int rows) {
+        return "INSERT INTO student AS s (id, name, age, faculty_id)"
+                + " SELECT COALESCE(e.id, nextval('student_seq')), v.name, v.age, v.faculty_id"
+                + " FROM (VALUES " + valueRows(rows) + ") AS v(name, age, faculty_id)"
+                + " LEFT JOIN student e ON e.name = v.name"
+                + " ON CONFLICT (name) DO UPDATE SET age = EXCLUDED.age, faculty_id = EXCLUDED.faculty_id"
+                + " WHERE (s.age, s.faculty_id) IS DISTINCT FROM (EXCLUDED.age, EXCLUDED.faculty_id)"
+                + " RETURNING (xmax = 0) AS inserted";
+    }
+
+    private String merge(int rows) {
+        return "MERGE INTO student s"
+                + " USING (VALUES " + valueRows(rows) + ") AS v(name, age, faculty_id) ON s.name = v.name"
+                + " WHEN MATCHED AND (s.age <> v.age OR s.faculty_id IS DISTINCT FROM v.faculty_id)"
+                + " THEN UPDATE SET age = v.age, faculty_id = v.faculty_id"
+                + " WHEN NOT MATCHED THEN INSERT (id, name, age, faculty_id)"
+                + " VALUES (NEXT VALUE FOR student_seq, v.name, v.age, v.faculty_id)";
+    }
+
+    private String valueRows(int rows) {
+        return String.join(", ", Collections.nCopies(rows,
+                "(CAST(? AS VARCHAR(255)), CAST(? AS INTEGER), CAST(? AS BIGINT))"));
+    }
+
+    private Object[] values(List<NewStudent> chunk) {
+        Object[] values = new Object[chunk.size() * 3];
+        for (int i = 0; i < chunk.size(); i++) {
+            NewStudent student = chunk.get(i);
+            values[i * 3] = student.getName();
+            values[i * 3 + 1] = student.getAge();
+            values[i * 3 + 2] = student.getFacultyId();
+        }
+        return values;
+    }
+
+    private boolean isPostgres() {
+        Boolean result = postgres;
+        if (result == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            result = "PostgreSQL".equals(product);
+            postgres = result;
+        }
+        return result;
+    }
+
+    void insertChunk(List<NewStudent> chunk, Map<Long, Faculty> faculties) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Student> entities = new ArrayList<>(chunk.size());
+            for (NewStudent student : chunk) {
+                Student entity = new Student(student.getName(), student.getAge());
+                entity.setFaculty(faculties.get(student.getFacultyId()));
+                entities.add(entity);
+            }
+            studentRepository.saveAllAndFlush(entities);
+            entityManager.clear();
+        });
+    }
+
+    Map<Long, Faculty> findFaculties(Set<Long> ids) {
+        return facultyRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Faculty::getId, Function.identity()));
+    }
+
+    private void validate(List<NewStudent> students) {
+        if (students.size() > maxSize) {
+            logger.error("Bulk write of {} students exceeds the limit of {}", students.size(), maxSize);
+            throw new InvalidStudentBatchException("За один запрос можно записать не более " + maxSize + " студентов");
+        }
+        for (int i = 0; i < students.size(); i++) {
+            NewStudent student = students.get(i);
+            if (student.getName() == null || student.getName().isBlank() || student.getAge() <= 0) {
+                logger.error("Invalid student at position {}", i);
+                throw new InvalidStudentBatchException("Некорректные данные студента на позиции " + i);
+            }
+        }
+    }
+
+    private void checkDuplicateNames(List<NewStudent> students) {
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < students.size(); i++) {
+            if (!names.add(students.get(i).getName())) {
+                logger.error("Duplicate student name at position {}", i);
+                throw new InvalidStudentBatchException("Студент " + students.get(i).getName()
+                        + " встречается в списке несколько раз");
+            }
+        }
+    }
+
+    private Map<Long, Faculty> resolveFaculties(List<NewStudent> students) {
+        Set<Long> ids = students.stream().map(NewStudent::getFacultyId).collect(Collectors.toSet());
+        Map<Long, Faculty> faculties = findFaculties(ids);
+        if (faculties.size() != ids.size()) {
+            Set<Long> missing = new HashSet<>(ids);
+            missing.removeAll(faculties.keySet());
+            logger.error("Faculties with ids: {} not found", missing);
+            throw new InvalidStudentBatchException("Факультеты с id " + missing + " не найдены");
+        }
+        return faculties;
+    }
+}
@@ -0,0 +1,468 @@
+package ru.hogwarts.school.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import ru.hogwarts.school.exceptions.ImportJobNotFoundException;
+import ru.hogwarts.school.exceptions.ImportQueueFullException;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.dto.NewStudent;
+import ru.hogwarts.school.model.dto.StudentImportRejection;
+import ru.hogwarts.school.model.dto.StudentImportState;
+import ru.hogwarts.school.model.dto.StudentImportStatus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class StudentImportService {
+    private static final List<Row> END = List.of();
+
+    private final StudentBulkService bulkService;
+    private final int capacity;
+    private final int chunkSize;
+    private final int pipelineDepth;
+    private final int maxRejections;
+    private final Duration jobRetention;
+    private final ThreadPoolExecutor executor;
+    private final ThreadPoolExecutor writers;
+
+    private final Map<UUID, Job> jobs = new ConcurrentHashMap<>();
+
+    Logger logger = LoggerFactory.getLogger(StudentImportService.class);
+
+    public StudentImportService(StudentBulkService bulkService,
+                                @Value("${student.import.threads:2}") int threads,
+                                @Value("${student.import.queue-capacity:10}") int capacity,
+                                @Value("${student.import.chunk-size:1000}") int chunkSize,
+                                @Value("${student.import.pipeline-depth:4}") int pipelineDepth,
+                                @Value("${student.import.max-rejections:1000}") int maxRejections,
+                                @Value("${student.import.job-retention:1h}") Duration jobRetention) {
+        this.bulkService = bulkService;
+        this.capacity = capacity;
+        this.chunkSize = chunkSize;
+        this.pipelineDepth = pipelineDepth;
+        this.maxRejections = maxRejections;
+        this.jobRetention = jobRetention;
+        this.executor = newExecutor("student-import-", threads, new ArrayBlockingQueue<>(capacity));
+        this.writers = newExecutor("student-import-writer-", threads, new LinkedBlockingQueue<>());
+    }
+
+    private ThreadPoolExecutor newExecutor(String prefix, int threads, BlockingQueue<Runnable> queue) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, queue,
+                runnable -> {
+                    Thread thread = new Thread(runnable, prefix + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    public StudentImportStatus submit(InputStream csv) throws IOException {
+        logger.info("Method submit was invoked");
+        evictFinishedJobs();
+        if (executor.getQueue().remainingCapacity() == 0) {
+            logger.warn("Student import queue is full");
+            throw new ImportQueueFullException("Очередь импорта студентов переполнена");
+        }
+
+        Path file = Files.createTempFile("students", ".csv");
+        try {
+            Files.copy(csv, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        Job job = new Job(file);
+        jobs.put(job.id, job);
+        try {
+            executor.execute(job);
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            Files.deleteIfExists(file);
+            logger.warn("Student import queue is full");
+            throw new ImportQueueFullException("Очередь импорта студентов переполнена");
+        }
+        logger.debug("Queued student import job {} ({} jobs waiting of {})", job.id, executor.getQueue().size(), capacity);
+        return job.status();
+    }
+
+    public StudentImportStatus getJob(UUID id) {
+        logger.info("Method getJob was invoked");
+        Job job = jobs.get(id);
+        if (job == null) {
+            throw new ImportJobNotFoundException("Задача импорта " + id + " не найдена");
+        }
+        return job.status();
+    }
+
+    private void evictFinishedJobs() {
+        Instant threshold = Instant.now().minus(jobRetention);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(threshold));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        for (Runnable pending : executor.shutdownNow()) {
+            Job job = (Job) pending;
+            job.deleteFile();
+            logger.warn("Discarded queued student import job {} on shutdown", job.id);
+        }
+        writers.shutdownNow();
+    }
+
+    private static final class Row {
+        private final long line;
+        private final NewStudent student;
+
+        private Row(long line, NewStudent student) {
+            this.line = line;
+            this.student = student;
+        }
+    }
+
+    private final class Job implements Runnable {
+        private final UUID id = UUID.randomUUID();
+        private final Path file;
+        private final Instant submittedAt = Instant.now();
+        private final AtomicLong rowsRead = new AtomicLong();
+        private final AtomicLong imported = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final List<StudentImportRejection> rejections = new ArrayList<>();
+        private volatile StudentImportState state = StudentImportState.QUEUED;
+        private volatile String error;
+        private volatile boolean writing = true;
+        private volatile long startedNanos;
+        private volatile long finishedNanos;
+        private volatile Instant finishedAt;
+
+        private Job(Path file) {
+            this.file = file;
+        }
+
+        @Override
+        public void run() {
+            state = StudentImportState.RUNNING;
+            startedNanos = System.nanoTime();
+            BlockingQueue<List<Row>> pipeline = new ArrayBlockingQueue<>(pipelineDepth);
+            try {
+                writers.execute(() -> write(pipeline));
+            } catch (RejectedExecutionException e) {
+                finish("Импорт остановлен");
+                return;
+            }
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                parse(new CsvReader(reader), pipeline);
+            } catch (IOException | RuntimeException e) {
+                logger.error("Student import job {} failed to read the file", id, e);
+                fail(e instanceof IllegalArgumentException ? e.getMessage() : "Не удалось прочитать CSV-файл");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("Импорт прерван");
+            }
+            try {
+                send(pipeline, END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("Импорт прерван");
+            }
+        }
+
+        private void parse(CsvReader csv, BlockingQueue<List<Row>> pipeline) throws IOException, InterruptedException {
+            int[] columns = {0, 1, 2};
+            List<Row> chunk = new ArrayList<>(chunkSize);
+            List<String> record;
+            while (writing && (record = csv.next()) != null) {
+                long line = csv.recordLine();
+                if (record.size() == 1 && record.get(0).isBlank()) {
+                    continue;
+                }
+                if (line == 1 && isHeader(record)) {
+                    columns = columnsOf(record);
+                    continue;
+                }
+                rowsRead.incrementAndGet();
+                NewStudent student = parseRow(line, record, columns);
+                if (student == null) {
+                    continue;
+                }
+                chunk.add(new Row(line, student));
+                if (chunk.size() >= chunkSize) {
+                    if (!send(pipeline, chunk)) {
+                        return;
+                    }
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                send(pipeline, chunk);
+            }
+        }
+
+        private boolean isHeader(List<String> record) {
+            return record.stream().anyMatch(field -> field.trim().equalsIgnoreCase("name"));
+        }
+
+        private int[] columnsOf(List<String> header) {
+            int[] columns = {-1, -1, -1};
+            for (int i = 0; i < header.size(); i++) {
+                String column = header.get(i).trim().toLowerCase();
+                switch (column) {
+                    case "name" -> columns[0] = i;
+                    case "age" -> columns[1] = i;
+                    case "facultyid", "faculty_id" -> columns[2] = i;
+                    default -> {
+                    }
+                }
+            }
+            for (int column : columns) {
+                if (column < 0) {
+                    throw new IllegalArgumentException("В заголовке CSV должны быть столбцы name, age и facultyId");
+                }
+            }
+            return columns;
+        }
+
+        private NewStudent parseRow(long line, List<String> record, int[] columns) {
+            for (int column : columns) {
+                if (column >= record.size()) {
+                    reject(line, "Недостаточно столбцов");
+                    return null;
+                }
+            }
+            String name = record.get(columns[0]).trim();
+            if (name.isEmpty()) {
+                reject(line, "Имя не должно быть пустым");
+                return null;
+            }
+            int age;
+            long facultyId;
+            try {
+                age = Integer.parseInt(record.get(columns[1]).trim());
+            } catch (NumberFormatException e) {
+                age = 0;
+            }
+            if (age <= 0) {
+                reject(line, "Возраст должен быть положительным числом");
+                return null;
+            }
+            try {
+                facultyId = Long.parseLong(record.get(columns[2]).trim());
+            } catch (NumberFormatException e) {
+                reject(line, "Некорректный id факультета");
+                return null;
+            }
+            return new NewStudent(name, age, facultyId);
+        }
+
+        private boolean send(BlockingQueue<List<Row>> pipeline, List<Row> chunk) throws InterruptedException {
+            while (writing) {
+                if (pipeline.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void write(BlockingQueue<List<Row>> pipeline) {
+            Map<Long, Faculty> faculties = new HashMap<>();
+            Set<Long> missingFaculties = new HashSet<>();
+            try {
+                List<Row> chunk;
+                while ((chunk = pipeline.take()) != END) {
+                    Set<Long> unknown = new HashSet<>();
+                    for (Row row : chunk) {
+                        long facultyId = row.student.getFacultyId();
+                        if (!faculties.containsKey(facultyId) && !missingFaculties.contains(facultyId)) {
+                            unknown.add(facultyId);
+                        }
+                    }
+                    if (!unknown.isEmpty()) {
+                        faculties.putAll(bulkService.findFaculties(unknown));
+                        unknown.removeAll(faculties.keySet());
+                        missingFaculties.addAll(unknown);
+                    }
+                    List<Row> rows = new ArrayList<>(chunk.size());
+                    for (Row row : chunk) {
+                        if (faculties.containsKey(row.student.getFacultyId())) {
+                            rows.add(row);
+                        } else {
+                            reject(row.line, "Факультет с id " + row.student.getFacultyId() + " не найден");
+                        }
+                    }
+                    if (!rows.isEmpty()) {
+                        store(rows, faculties);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("Импорт прерван");
+            } catch (RuntimeException e) {
+                logger.error("Student import job {} failed to store students", id, e);
+                fail("Не удалось сохранить студентов");
+            }
+            writing = false;
+            finish(error);
+        }
+
+        private void store(List<Row> rows, Map<Long, Faculty> faculties) {
+            try {
+                bulkService.insertChunk(rows.stream().map(row -> row.student).toList(), faculties);
+                imported.addAndGet(rows.size());
+            } catch (DataIntegrityViolationException e) {
+                if (rows.size() == 1) {
+                    logger.debug("Student import job {} rejected line {}", id, rows.get(0).line, e);
+                    reject(rows.get(0).line, "Строка нарушает ограничения базы данных (например, такое имя уже есть)");
+                    return;
+                }
+                logger.debug("Student import job {} retrying a chunk of {} rows in halves", id, rows.size());
+                int half = rows.size() / 2;
+                store(rows.subList(0, half), faculties);
+                store(rows.subList(half, rows.size()), faculties);
+            }
+        }
+
+        private void reject(long line, String reason) {
+            rejected.incrementAndGet();
+            synchronized (rejections) {
+                if (rejections.size() < maxRejections) {
+                    rejections.add(new StudentImportRejection(line, reason));
+                }
+            }
+        }
+
+        private void fail(String message) {
+            if (error == null) {
+                error = message;
+            }
+        }
+
+        private void finish(String message) {
+            error = message;
+            deleteFile();
+            finishedNanos = System.nanoTime();
+            state = message == null ? StudentImportState.DONE : StudentImportState.FAILED;
+            finishedAt = Instant.now();
+            logger.info("Student import job {} finished: {} imported, {} rejected, {} rows/s",
+                    id, imported.get(), rejected.get(), rowsPerSecond());
+        }
+
+        private void deleteFile() {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.warn("Failed to delete import file {}", file, e);
+            }
+        }
+
+        private long rowsPerSecond() {
+            if (startedNanos == 0) {
+                return 0;
+            }
+            long end = finishedNanos != 0 ? finishedNanos : System.nanoTime();
+            return imported.get() * 1_000_000_000L / Math.max(end - startedNanos, 1);
+        }
+
+        private StudentImportStatus status() {
+            List<StudentImportRejection> report;
+            synchronized (rejections) {
+                report = List.copyOf(rejections);
+            }
+            return new StudentImportStatus(id, state, rowsRead.get(), imported.get(), rejected.get(), rowsPerSecond(),
+                    report, error, submittedAt, finishedAt);
+        }
+    }
+
+    private static final class CsvReader {
+        private final Reader reader;
+        private boolean started;
+        private long lines;
+        private long recordLine;
+
+        private CsvReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        private List<String> next() throws IOException {
+            int c = reader.read();
+            if (!started) {
+                started = true;
+                if (c == '\uFEFF') {
+                    c = reader.read();
+                }
+            }
+            if (c == -1) {
+                return null;
+            }
+            recordLine = ++lines;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new IllegalArgumentException("Незакрытые кавычки в CSV");
+                    }
+                    if (c == '\n') {
+                        lines++;
+                    }
+                    if (c == '"') {
+                        c = reader.read();
+                        if (c == '"') {
+                            field.append('"');
+                            c = reader.read();
+                        } else {
+                            quoted = false;
+                        }
+                        continue;
+                    }
+                    field.append((char) c);
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == -1) {
+                    fields.add(field.toString());
+                    return fields;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+                c = reader.read();
+            }
+        }
+
+        private long recordLine() {
+            return recordLine;
+        }
+    }
+}
@@ -3,9 +3,13 @@ package ru.hogwarts.school.service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import ru.hogwarts.school.exceptions.InvalidPageSizeException;
 import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.model.dto.StudentPage;
 import ru.hogwarts.school.repository.FacultyRepository;
 import ru.hogwarts.school.repository.StudentRepository;
 
@@ -17,8 +21,15 @@ import java.util.stream.Stream;
 
 @Service
 public class StudentService {
+    private static final String STUDENT_CURSOR = "student";
+
     private final StudentRepository studentRepository;
 
+    @Value("${student.page.default-size:50}")
+    private int defaultPageSize = 50;
+    @Value("${student.page.max-size:500}")
+    private int maxPageSize = 500;
+
     public StudentService(StudentRepository studentRepository) {
         this.studentRepository = studentRepository;
     }
@@ -67,6 +78,22 @@ public class StudentService {
         return studentRepository.findAll();
     }
 
+    public StudentPage getStudentsAfter(String after, Integer limit) {
+        logger.info("Method getStudentsAfter was invoked");
+        if (limit != null && limit <= 0) {
+            logger.error("Invalid page size");
+            throw new InvalidPageSizeException("Переданы некорректные параметры страницы");
+        }
+        int pageSize = limit == null ? defaultPageSize : Math.min(limit, maxPageSize);
+        long afterId = PageCursors.decode(STUDENT_CURSOR, after);
+        List<Student> students = studentRepository.findAfter(afterId, Limit.of(pageSize + 1));
+        if (students.size() <= pageSize) {
+            return new StudentPage(students, null, pageSize);
+        }
+        List<Student> page = students.subList(0, pageSize);
+        return new StudentPage(page, PageCursors.encode(STUDENT_CURSOR, page.get(pageSize - 1).getId()), pageSize);
+    }
+
     public Collection<Student> findByAge(int age) {
         logger.info("Method findByAge was invoked");
         return studentRepository.findByAge(age);
@@ -4,4 +4,17 @@
 CREATE INDEX student_name_index ON student (name);
 
 -- changeset vdineka:2
-CREATE INDEX faculty_name_color_index ON faculty (name, color);
\ No newline at end of file
+CREATE INDEX faculty_name_color_index ON faculty (name, color);
+
+-- changeset vdineka:3 dbms:postgresql
+CREATE SEQUENCE IF NOT EXISTS avatar_seq INCREMENT BY 50;
+SELECT setval('avatar_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM avatar));
+
+-- changeset vdineka:4 dbms:postgresql
+CREATE SEQUENCE IF NOT EXISTS student_seq INCREMENT BY 50;
+SELECT setval('student_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM student));
+
+-- changeset vdineka:5 dbms:postgresql
+-- preconditions onFail:MARK_RAN
+-- precondition-sql-check expectedResult:0 SELECT COUNT(*) FROM pg_constraint WHERE conname = 'name_unique'
+ALTER TABLE student ADD CONSTRAINT name_unique UNIQUE (name);
@@ -0,0 +1,75 @@
+package ru.hogwarts.school.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import ru.hogwarts.school.model.AvatarStorageMode;
+import ru.hogwarts.school.model.dto.AvatarInfo;
+import ru.hogwarts.school.model.dto.AvatarView;
+import ru.hogwarts.school.service.AvatarBatchService;
+import ru.hogwarts.school.service.AvatarBlobStreamer;
+import ru.hogwarts.school.service.AvatarBulkUploadService;
+import ru.hogwarts.school.service.AvatarChunkedUploadService;
+import ru.hogwarts.school.service.AvatarExportService;
+import ru.hogwarts.school.service.AvatarIngestionService;
+import ru.hogwarts.school.service.AvatarService;
+import ru.hogwarts.school.service.AvatarStorageMigrationService;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AvatarControllerTest {
+    AvatarService avatarService = mock(AvatarService.class);
+
+    AvatarController controller = new AvatarController(avatarService, mock(AvatarStorageMigrationService.class),
+            new AvatarFileWriter(), mock(AvatarBulkUploadService.class), mock(AvatarIngestionService.class),
+            mock(AvatarBlobStreamer.class), mock(AvatarExportService.class), mock(AvatarBatchService.class),
+            mock(AvatarChunkedUploadService.class), false);
+
+    AvatarInfo info;
+
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/avatar/get/from-directory/abc");
+
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path file = Files.createTempFile("avatar", ".png");
+        Files.writeString(file, "original");
+        info = new AvatarInfo(1L, 1L, file.toString(), 8, MediaType.IMAGE_PNG_VALUE, "abc",
+                Instant.ofEpochMilli(1000), AvatarStorageMode.DISK);
+        when(avatarService.getAvatarInfo(1L)).thenReturn(info);
+        when(avatarService.getAvatarFile(info)).thenReturn(new AvatarView(MediaType.IMAGE_PNG, file, 8, 1000L, "abc"));
+    }
+
+    @Test
+    void versionedRenditionIsImmutable() throws IOException {
+        when(avatarService.getRendition(info, 48))
+                .thenReturn(new AvatarView(MediaType.IMAGE_JPEG, ByteBuffer.wrap("thumb".getBytes()), 1000L, "abc_48.jpg"));
+
+        controller.getAvatarVersionFromDirectory(1L, "abc", 48, new ServletWebRequest(request, response), request, response);
+
+        assertEquals("thumb", response.getContentAsString());
+        assertTrue(response.getHeader(HttpHeaders.CACHE_CONTROL).contains("immutable"));
+    }
+
+    @Test
+    void originalServedForMissingRenditionMustBeRevalidated() throws IOException {
+        when(avatarService.getRendition(info, 48)).thenReturn(null);
+
+        controller.getAvatarVersionFromDirectory(1L, "abc", 48, new ServletWebRequest(request, response), request, response);
+
+        assertEquals("original", response.getContentAsString());
+        assertEquals("no-cache", response.getHeader(HttpHeaders.CACHE_CONTROL));
+    }
+}
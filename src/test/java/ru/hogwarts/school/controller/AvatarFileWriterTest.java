@@ -0,0 +1,152 @@
+package ru.hogwarts.school.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import ru.hogwarts.school.model.dto.AvatarPart;
+import ru.hogwarts.school.model.dto.AvatarView;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AvatarFileWriterTest {
+    AvatarFileWriter writer = new AvatarFileWriter();
+
+    AvatarView view;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path file = Files.createTempFile("avatar", ".png");
+        Files.writeString(file, "0123456789");
+        view = new AvatarView(MediaType.IMAGE_PNG, file, 10, Files.getLastModifiedTime(file).toMillis(), "abc");
+    }
+
+    @Test
+    void writesWholeFileWithoutRange() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/avatar/get/from-directory");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        writer.write(view, request, response);
+
+        assertEquals(200, response.getStatus());
+        assertEquals("0123456789", response.getContentAsString());
+        assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+    }
+
+    @Test
+    void writesPartialContentForSingleRange() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/avatar/get/from-directory");
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        writer.write(view, request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("2345", response.getContentAsString());
+        assertEquals("bytes 2-5/10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(4, response.getContentLengthLong());
+    }
+
+    @Test
+    void rejectsUnsatisfiableRange() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/avatar/get/from-directory");
+        request.addHeader(HttpHeaders.RANGE, "bytes=20-30");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        writer.write(view, request, response);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void ignoresRangeWhenIfRangeDoesNotMatch() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/avatar/get/from-directory");
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"outdated\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        writer.write(view, request, response);
+
+        assertEquals(200, response.getStatus());
+        assertEquals("0123456789", response.getContentAsString());
+    }
+
+    @Test
+    void honoursRangeWhenIfRangeMatchesETag() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/avatar/get/from-directory");
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"abc\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        writer.write(view, request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("\"abc\"", response.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void delegatesToSendfileWhenContainerSupportsIt() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/avatar/get/from-directory");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader(HttpHeaders.RANGE, "bytes=4-");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        writer.write(view, request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals(4L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(10L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void streamsBodyWithDeclaredLength() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/avatar/get/from-db");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        writer.write(MediaType.IMAGE_PNG, 10, out -> out.write("0123456789".getBytes()), request, response);
+
+        assertEquals("0123456789", response.getContentAsString());
+        assertEquals(10, response.getContentLengthLong());
+        assertEquals(MediaType.IMAGE_PNG_VALUE, response.getContentType());
+    }
+
+    @Test
+    void skipsStreamedBodyForHeadRequest() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("HEAD", "/avatar/get/from-db");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        writer.write(MediaType.IMAGE_PNG, 10, out -> fail("Body must not be read for HEAD"), request, response);
+
+        assertEquals(10, response.getContentLengthLong());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void writesMultipartPartsWithClosingDelimiter() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        AvatarFileWriter.MultipartWriter parts = writer.multipart(response);
+        parts.write(new AvatarPart(7, MediaType.IMAGE_PNG, "\"abc\"", "0123".getBytes()));
+        parts.finish();
+
+        MediaType contentType = MediaType.parseMediaType(response.getContentType());
+        String boundary = contentType.getParameter("boundary");
+        assertEquals("multipart/mixed", contentType.getType() + "/" + contentType.getSubtype());
+        assertEquals("--" + boundary + "\r\n"
+                + "Content-Type: image/png\r\n"
+                + "Content-Length: 4\r\n"
+                + "Content-Location: /avatar/get/from-directory?studentID=7\r\n"
+                + "ETag: \"abc\"\r\n"
+                + "\r\n"
+                + "0123\r\n"
+                + "--" + boundary + "--\r\n", response.getContentAsString());
+    }
+}
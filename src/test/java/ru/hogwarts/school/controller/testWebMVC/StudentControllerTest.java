@@ -8,26 +8,38 @@ import org.springframework.boot.convert.DataSizeUnit;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.hogwarts.school.controller.StudentController;
 import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.model.dto.StudentBulkResult;
 import ru.hogwarts.school.repository.FacultyRepository;
 import ru.hogwarts.school.repository.StudentRepository;
+import ru.hogwarts.school.service.StudentBulkService;
+import ru.hogwarts.school.service.StudentExportService;
+import ru.hogwarts.school.service.StudentImportService;
 import ru.hogwarts.school.service.StudentService;
 
 import java.util.List;
 import java.util.Optional;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static ru.hogwarts.school.TestData.*;
 
-@WebMvcTest(StudentController.class)
+@WebMvcTest(value = StudentController.class, properties = "student.list.allow-all=true")
 class StudentControllerTest {
     @Autowired
     MockMvc mockMvc;
@@ -41,6 +53,15 @@ class StudentControllerTest {
     @MockBean
     FacultyRepository facultyRepository;
 
+    @MockBean
+    StudentExportService exportService;
+
+    @MockBean
+    StudentBulkService bulkService;
+
+    @MockBean
+    StudentImportService importService;
+
     @Autowired
     ObjectMapper objectMapper;
 
@@ -59,7 +80,7 @@ class StudentControllerTest {
 
         when(studentRepository.findAll()).thenReturn(List.of(student1, student2, student3));
 
-        mockMvc.perform(get(path))
+        mockMvc.perform(get(path).param("all", "true"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$").exists())
                 .andExpect(jsonPath("$", hasSize(3)))
@@ -76,6 +97,52 @@ class StudentControllerTest {
         verify(studentRepository, times(1)).findAll();
     }
 
+    @Test
+    @DisplayName("Без разрешения на сервере параметр all не отдает всю таблицу")
+    void getAllStudentsIsPagedByDefault() {
+        Student student = new Student(STUDENT_NAME_1, STUDENT_AGE_1);
+        student.setId(1L);
+        StudentController controller = new StudentController(studentService, exportService, bulkService, importService, false);
+
+        when(studentRepository.findAfter(eq(0L), any())).thenReturn(List.of(student));
+
+        assertEquals(List.of(student), controller.getAllStudents(null, null, true).getBody());
+        verify(studentRepository).findAfter(0L, Limit.of(51));
+        verify(studentRepository, never()).findAll();
+    }
+
+    @Test
+    @DisplayName("Отклоняет некорректный размер страницы")
+    void getStudentsRejectsInvalidLimit() throws Exception {
+        mockMvc.perform(get(path).param("limit", "0"))
+                .andExpect(status().isBadRequest());
+
+        verify(studentRepository, never()).findAfter(anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("Возвращает студентов постранично со ссылкой на следующую страницу")
+    void getStudentsPage() throws Exception {
+        Student student1 = new Student(STUDENT_NAME_1, STUDENT_AGE_1);
+        Student student2 = new Student(STUDENT_NAME_2, STUDENT_AGE_2);
+        Student student3 = new Student(STUDENT_NAME_3, STUDENT_AGE_3);
+        student1.setId(1L);
+        student2.setId(2L);
+        student3.setId(3L);
+
+        when(studentRepository.findAfter(eq(0L), any())).thenReturn(List.of(student1, student2, student3));
+
+        mockMvc.perform(get(path).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[1].id").value(2L))
+                .andExpect(header().string("Link", containsString("rel=\"next\"")))
+                .andExpect(header().string("Link", containsString("limit=2")));
+
+        verify(studentRepository).findAfter(0L, Limit.of(3));
+        verify(studentRepository, never()).findAll();
+    }
+
     @Test
     @DisplayName("Корректно находит студента по id")
     void getStudentInfo() throws Exception {
@@ -144,6 +211,20 @@ class StudentControllerTest {
         verify(facultyRepository, times(1)).findById(id);
     }
 
+    @Test
+    @DisplayName("Сообщает, с какой позиции не удалось записать студентов")
+    void createStudentsReportsConflict() throws Exception {
+        when(bulkService.createStudents(anyList()))
+                .thenReturn(new StudentBulkResult(1000, 1, 10, 100_000, 1000, "Студенты начиная с позиции 1000 не записаны"));
+
+        mockMvc.perform(post(path + "/bulk")
+                        .content("[{\"name\":\"Harry Potter\",\"age\":11,\"facultyId\":1}]")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.created").value(1000))
+                .andExpect(jsonPath("$.failedAt").value(1000));
+    }
+
     @Test
     @DisplayName("Корректно изменяет существующего студента")
     void updateStudent() throws Exception {
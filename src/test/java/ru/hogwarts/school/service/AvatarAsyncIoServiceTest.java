@@ -0,0 +1,136 @@
+package ru.hogwarts.school.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import ru.hogwarts.school.exceptions.AvatarIoBusyException;
+import ru.hogwarts.school.exceptions.AvatarNotFoundException;
+import ru.hogwarts.school.model.AvatarStorageMode;
+import ru.hogwarts.school.model.dto.AvatarInfo;
+import ru.hogwarts.school.model.dto.AvatarView;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AvatarAsyncIoServiceTest {
+    @Mock
+    AvatarService avatarService;
+
+    AvatarAsyncIoService asyncIoService;
+
+    AvatarInfo info = new AvatarInfo(1, 1, "images/a", 10, MediaType.IMAGE_PNG_VALUE, "a", null, AvatarStorageMode.DISK);
+
+    @BeforeEach
+    void setUp() {
+        asyncIoService = new AvatarAsyncIoService(avatarService, 2, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        asyncIoService.shutdown();
+    }
+
+    @Test
+    void resolvesAvatarOffTheCallingThreadAndStreamsIt() throws Exception {
+        Path file = Files.createTempFile("avatar", ".png");
+        byte[] content = new byte[200 * 1024 + 7];
+        new Random(1).nextBytes(content);
+        Files.write(file, content);
+        when(avatarService.getAvatarFile(info)).thenAnswer(invocation -> {
+            assertTrue(Thread.currentThread().getName().startsWith("avatar-io-"));
+            return new AvatarView(MediaType.IMAGE_PNG, file, content.length, 1000L, "a");
+        });
+
+        AvatarView view = asyncIoService.resolveAvatar(info, null).get(5, TimeUnit.SECONDS);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        asyncIoService.transfer(view, out);
+
+        assertArrayEquals(content, out.toByteArray());
+        assertEquals("\"a\"", view.getETag());
+        assertEquals(1000L, view.getLastModified());
+    }
+
+    @Test
+    void resolveAvatarPrefersRenditionAndStreamsMappedContent() throws Exception {
+        AvatarView rendition = new AvatarView(MediaType.IMAGE_JPEG, ByteBuffer.wrap("thumb".getBytes()), 0, "a_48.jpg");
+        when(avatarService.getRendition(info, 48)).thenReturn(rendition);
+
+        AvatarView view = asyncIoService.resolveAvatar(info, 48).get(5, TimeUnit.SECONDS);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        asyncIoService.transfer(view, out);
+
+        assertEquals("thumb", out.toString());
+        assertEquals(MediaType.IMAGE_JPEG, view.getMediaType());
+        verify(avatarService, never()).getAvatarFile(info);
+    }
+
+    @Test
+    void resolveAvatarStoredOnlyInDbFallsBackToCacheOrBlob() throws Exception {
+        AvatarInfo dbOnly = new AvatarInfo(2, 2, null, 10, MediaType.IMAGE_PNG_VALUE, "b", null, AvatarStorageMode.DB);
+        AvatarView cached = new AvatarView(MediaType.IMAGE_PNG, ByteBuffer.wrap("cached".getBytes()), 0, "b");
+        when(avatarService.getCachedAvatar(dbOnly, false)).thenReturn(cached, (AvatarView) null);
+
+        assertSame(cached, asyncIoService.resolveAvatar(dbOnly, null).get(5, TimeUnit.SECONDS));
+        assertNull(asyncIoService.resolveAvatar(dbOnly, null).get(5, TimeUnit.SECONDS));
+        verify(avatarService, never()).getAvatarFile(any());
+    }
+
+    @Test
+    void failsWithDomainExceptions() {
+        when(avatarService.getAvatarFile(info)).thenThrow(new AvatarNotFoundException("Аватар не найден"));
+        CompletableFuture<AvatarView> missing = asyncIoService.resolveAvatar(info, null);
+
+        ExecutionException notFound = assertThrows(ExecutionException.class, () -> missing.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(AvatarNotFoundException.class, notFound.getCause());
+        assertThrows(IOException.class, () -> asyncIoService.transfer(
+                new AvatarView(MediaType.IMAGE_PNG, Path.of("does-not-exist.png"), 10, 0, "a"), new ByteArrayOutputStream()));
+    }
+
+    @Test
+    void resolveAvatarFailsFastWhenTheQueueIsFull() throws Exception {
+        asyncIoService.shutdown();
+        asyncIoService = new AvatarAsyncIoService(avatarService, 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        MockMultipartFile upload = new MockMultipartFile("file", "avatar.png", MediaType.IMAGE_PNG_VALUE, new byte[]{1});
+        when(avatarService.uploadAvatar(1L, upload)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return 7L;
+        });
+        CompletableFuture<Long> running = asyncIoService.uploadAvatar(1L, upload);
+        CompletableFuture<Long> queued = asyncIoService.uploadAvatar(1L, upload);
+
+        CompletableFuture<AvatarView> resolve = asyncIoService.resolveAvatar(info, null);
+
+        ExecutionException busy = assertThrows(ExecutionException.class, () -> resolve.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(AvatarIoBusyException.class, busy.getCause());
+        release.countDown();
+        assertEquals(7L, running.get(5, TimeUnit.SECONDS));
+        assertEquals(7L, queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void uploadAvatarRunsOnIoExecutor() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "avatar.png", MediaType.IMAGE_PNG_VALUE, new byte[]{1});
+        when(avatarService.uploadAvatar(1L, file)).thenReturn(7L);
+
+        assertEquals(7L, asyncIoService.uploadAvatar(1L, file).get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,79 @@
+package ru.hogwarts.school.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import ru.hogwarts.school.exceptions.AvatarBatchTooLargeException;
+import ru.hogwarts.school.model.AvatarStorageMode;
+import ru.hogwarts.school.model.dto.AvatarInfo;
+import ru.hogwarts.school.model.dto.AvatarPart;
+import ru.hogwarts.school.model.dto.AvatarView;
+import ru.hogwarts.school.repository.AvatarRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AvatarBatchServiceTest {
+    @Mock
+    AvatarRepository avatarRepository;
+
+    @Mock
+    AvatarService avatarService;
+
+    @Mock
+    AvatarBlobStreamer blobStreamer;
+
+    AvatarBatchService batchService;
+
+    @BeforeEach
+    void setUp() {
+        batchService = new AvatarBatchService(avatarRepository, avatarService, blobStreamer, 2, 10);
+    }
+
+    @Test
+    void fetchResolvesAvatarsWithOneQueryAndKeepsRequestedOrder() throws IOException {
+        List<AvatarInfo> infos = new ArrayList<>();
+        for (long id = 1; id <= 6; id++) {
+            AvatarInfo info = new AvatarInfo(id, id, "images/" + id, 1, MediaType.IMAGE_PNG_VALUE, "hash" + id,
+                    null, AvatarStorageMode.DISK);
+            Path file = Files.createTempFile("avatar", ".png");
+            Files.writeString(file, "avatar-" + id);
+            when(avatarService.getAvatarFile(info)).thenReturn(new AvatarView(MediaType.IMAGE_PNG, file, 8, 0, "hash" + id));
+            infos.add(info);
+        }
+        when(avatarRepository.findInfoByStudentIdIn(any())).thenReturn(infos);
+        List<AvatarPart> parts = new ArrayList<>();
+
+        int written = batchService.fetch(List.of(6L, 2L, 99L, 4L, 1L, 3L, 5L, 2L), null, parts::add);
+
+        assertEquals(6, written);
+        assertEquals(List.of(6L, 2L, 4L, 1L, 3L, 5L), parts.stream().map(AvatarPart::getStudentId).toList());
+        assertEquals("avatar-6", new String(parts.get(0).getData()));
+        assertEquals("\"hash6\"", parts.get(0).getETag());
+        verify(avatarRepository).findInfoByStudentIdIn(Set.of(1L, 2L, 3L, 4L, 5L, 6L, 99L));
+    }
+
+    @Test
+    void fetchRejectsTooManyStudents() {
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= 11; id++) {
+            ids.add(id);
+        }
+
+        assertThrows(AvatarBatchTooLargeException.class, () -> batchService.fetch(ids, null, part -> {
+        }));
+        verifyNoInteractions(avatarRepository);
+    }
+}
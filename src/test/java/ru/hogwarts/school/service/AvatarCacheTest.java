@@ -0,0 +1,125 @@
+package ru.hogwarts.school.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import ru.hogwarts.school.service.AvatarCache.CachedAvatar;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AvatarCacheTest {
+    AvatarCache cache = new AvatarCache(DataSize.ofBytes(64), DataSize.ofBytes(16), DataSize.ofBytes(48));
+
+    static byte[] bytes(int length, int seed) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (seed + i);
+        }
+        return data;
+    }
+
+    static byte[] read(CachedAvatar cached, long position, long count) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cached.transferTo(position, count, Channels.newChannel(out));
+        return out.toByteArray();
+    }
+
+    @Test
+    void returnsStoredBytesAcrossPages() throws IOException {
+        byte[] data = bytes(40, 1);
+        cache.put("a", data).close();
+
+        try (CachedAvatar cached = cache.get("a")) {
+            assertNotNull(cached);
+            assertEquals(40, cached.getLength());
+            assertArrayEquals(data, read(cached, 0, 40));
+            assertArrayEquals(Arrays.copyOfRange(data, 10, 35), read(cached, 10, 25));
+        }
+        assertEquals(1, cache.getHits());
+        assertEquals(40, cache.getUsedBytes());
+    }
+
+    @Test
+    void loadsContentFromFile() throws IOException {
+        byte[] data = bytes(33, 7);
+        Path file = Files.createTempFile("avatar", ".bin");
+        Files.write(file, data);
+
+        try (CachedAvatar cached = cache.put("file", file, data.length)) {
+            assertArrayEquals(data, read(cached, 0, data.length));
+        }
+    }
+
+    @Test
+    void loadsContentFromStreamAndDropsIncompleteEntries() throws IOException {
+        byte[] data = bytes(40, 5);
+
+        try (CachedAvatar cached = cache.put("stream", data.length, out -> {
+            out.write(data, 0, 7);
+            out.write(data, 7, data.length - 7);
+        })) {
+            assertArrayEquals(data, read(cached, 0, data.length));
+        }
+        assertThrows(IOException.class, () -> cache.put("short", 20, out -> out.write(bytes(10, 1))));
+        assertThrows(IOException.class, () -> cache.put("long", 20, out -> out.write(bytes(30, 1))));
+
+        assertNull(cache.get("short"));
+        assertNull(cache.get("long"));
+        try (CachedAvatar big = cache.put("big", bytes(48, 2)); CachedAvatar small = cache.put("small", bytes(16, 3))) {
+            assertNotNull(big);
+            assertNotNull(small);
+        }
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntryWhenBudgetIsExceeded() {
+        cache.put("a", bytes(32, 1)).close();
+        cache.put("b", bytes(32, 2)).close();
+        cache.get("a").close();
+
+        cache.put("c", bytes(20, 3)).close();
+
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    void doesNotEvictPinnedEntries() {
+        CachedAvatar pinnedA = cache.put("a", bytes(32, 1));
+        CachedAvatar pinnedB = cache.put("b", bytes(32, 2));
+
+        assertNull(cache.put("c", bytes(16, 3)));
+
+        pinnedA.close();
+        pinnedB.close();
+        assertNotNull(cache.put("c", bytes(16, 3)));
+    }
+
+    @Test
+    void rejectsEntriesLargerThanLimit() {
+        assertNull(cache.put("big", bytes(49, 1)));
+        assertEquals(0, cache.getEntryCount());
+    }
+
+    @Test
+    void invalidatedEntryIsFreedAfterLastReader() throws IOException {
+        byte[] data = bytes(48, 1);
+        CachedAvatar reader = cache.put("a", data);
+
+        cache.invalidate("a");
+
+        assertNull(cache.get("a"));
+        assertArrayEquals(data, read(reader, 0, 48));
+        assertEquals(48, cache.getUsedBytes());
+        reader.close();
+        assertEquals(0, cache.getUsedBytes());
+    }
+}
@@ -0,0 +1,122 @@
+package ru.hogwarts.school.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.util.unit.DataSize;
+import ru.hogwarts.school.exceptions.InvalidUploadChunkException;
+import ru.hogwarts.school.exceptions.StudentNotFoundException;
+import ru.hogwarts.school.exceptions.UploadIncompleteException;
+import ru.hogwarts.school.exceptions.UploadSessionNotFoundException;
+import ru.hogwarts.school.model.dto.AvatarChunkedUploadStatus;
+import ru.hogwarts.school.model.dto.AvatarUploadResult;
+import ru.hogwarts.school.model.dto.StoredAvatarFile;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AvatarChunkedUploadServiceTest {
+    @Mock
+    AvatarService avatarService;
+
+    @Mock
+    StudentRepository studentRepository;
+
+    @Mock
+    AvatarImageValidator imageValidator;
+
+    @TempDir
+    Path root;
+
+    AvatarChunkedUploadService uploadService;
+
+    @BeforeEach
+    void setUp() {
+        uploadService = new AvatarChunkedUploadService(avatarService, studentRepository, imageValidator, root,
+                DataSize.ofBytes(4), 10, Duration.ofHours(1));
+    }
+
+    @Test
+    void chunksAreWrittenByOffsetAndRetriesAreIgnored() throws IOException {
+        when(studentRepository.existsById(1L)).thenReturn(true);
+        AvatarChunkedUploadStatus upload = uploadService.initiate(1L, 10);
+        UUID id = upload.getId();
+        assertEquals(3, upload.getChunkCount());
+        assertEquals(List.of(0, 1, 2), upload.getMissingChunks());
+
+        uploadService.writeChunk(id, 2, chunk("89"));
+        uploadService.writeChunk(id, 0, chunk("0123"));
+        AvatarChunkedUploadStatus retried = uploadService.writeChunk(id, 0, chunk("xxxx"));
+        assertEquals(List.of(1), retried.getMissingChunks());
+        uploadService.writeChunk(id, 1, chunk("4567"));
+
+        Path part = root.resolve("chunks").resolve(id + ".part");
+        assertEquals("0123456789", Files.readString(part));
+        StoredAvatarFile stored = new StoredAvatarFile(part, 10, "hash", MediaType.IMAGE_PNG_VALUE);
+        when(avatarService.inspectAvatarFile(part)).thenReturn(stored);
+        when(avatarService.saveAvatars(any())).thenReturn(List.of(AvatarUploadResult.uploaded(id.toString(), 1L, 5L)));
+
+        assertEquals(5L, uploadService.complete(id));
+        verify(avatarService).saveAvatars(argThat(uploads -> uploads.get(0).getFile() == stored
+                && uploads.get(0).getStudentId() == 1L));
+        assertThrows(UploadSessionNotFoundException.class, () -> uploadService.getStatus(id));
+    }
+
+    @Test
+    void completeRequiresEveryChunkWithTheExpectedLength() throws IOException {
+        when(studentRepository.existsById(1L)).thenReturn(true);
+        UUID id = uploadService.initiate(1L, 6).getId();
+
+        uploadService.writeChunk(id, 0, chunk("0123"));
+        assertThrows(InvalidUploadChunkException.class, () -> uploadService.writeChunk(id, 1, chunk("456")));
+        assertThrows(InvalidUploadChunkException.class, () -> uploadService.writeChunk(id, 2, chunk("45")));
+
+        assertThrows(UploadIncompleteException.class, () -> uploadService.complete(id));
+        assertEquals(List.of(1), uploadService.getStatus(id).getMissingChunks());
+        verify(avatarService, never()).saveAvatars(any());
+    }
+
+    @Test
+    void cancelAndExpiryRemoveThePartFile() throws IOException {
+        when(studentRepository.existsById(1L)).thenReturn(true);
+        UUID cancelled = uploadService.initiate(1L, 4).getId();
+        doCallRealMethod().when(avatarService).deleteQuietly(any());
+
+        uploadService.cancel(cancelled);
+
+        assertTrue(Files.notExists(root.resolve("chunks").resolve(cancelled + ".part")));
+        uploadService = new AvatarChunkedUploadService(avatarService, studentRepository, imageValidator, root,
+                DataSize.ofBytes(4), 10, Duration.ZERO.minusSeconds(1));
+        UUID expired = uploadService.initiate(1L, 4).getId();
+        uploadService.evictExpiredSessions();
+        assertThrows(UploadSessionNotFoundException.class, () -> uploadService.getStatus(expired));
+        assertTrue(Files.notExists(root.resolve("chunks").resolve(expired + ".part")));
+    }
+
+    @Test
+    void initiateRejectsUnknownStudents() {
+        when(studentRepository.existsById(1L)).thenReturn(false);
+
+        assertThrows(StudentNotFoundException.class, () -> uploadService.initiate(1L, 10));
+        verifyNoInteractions(avatarService);
+    }
+
+    private ByteArrayInputStream chunk(String data) {
+        return new ByteArrayInputStream(data.getBytes());
+    }
+}
@@ -0,0 +1,124 @@
+package ru.hogwarts.school.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import ru.hogwarts.school.exceptions.AvatarNotFoundException;
+import ru.hogwarts.school.model.AvatarArchiveFormat;
+import ru.hogwarts.school.model.AvatarStorageMode;
+import ru.hogwarts.school.model.dto.AvatarInfo;
+import ru.hogwarts.school.model.dto.AvatarView;
+import ru.hogwarts.school.repository.AvatarRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AvatarExportServiceTest {
+    @Mock
+    AvatarRepository avatarRepository;
+
+    @Mock
+    AvatarService avatarService;
+
+    @Mock
+    AvatarBlobStreamer blobStreamer;
+
+    AvatarExportService exportService;
+
+    AvatarInfo onDisk = new AvatarInfo(1, 10, "images/a", 10, MediaType.IMAGE_JPEG_VALUE, "a",
+            Instant.parse("2024-01-01T00:00:00Z"), AvatarStorageMode.DISK);
+    AvatarInfo inDb = new AvatarInfo(2, 20, null, 6, MediaType.IMAGE_PNG_VALUE, "b",
+            Instant.parse("2024-01-01T00:00:00Z"), AvatarStorageMode.DB);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        exportService = new AvatarExportService(avatarRepository, avatarService, blobStreamer);
+        Path file = Files.createTempFile("avatar", ".jpg");
+        Files.writeString(file, "0123456789");
+        when(avatarService.getAvatarFile(onDisk)).thenReturn(new AvatarView(MediaType.IMAGE_JPEG, file, 10, 0, "a"));
+    }
+
+    @Test
+    void exportsZipWithFileAndDatabaseContent() throws IOException {
+        stubDatabaseContent();
+        when(avatarRepository.streamAllInfo()).thenReturn(Stream.of(onDisk, inDb));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long exported = exportService.export(null, AvatarArchiveFormat.ZIP, out);
+
+        assertEquals(2, exported);
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry = zip.getNextEntry();
+            assertEquals("10.jpg", entry.getName());
+            assertEquals("0123456789", new String(zip.readAllBytes()));
+            entry = zip.getNextEntry();
+            assertEquals("20.png", entry.getName());
+            assertEquals("db-png", new String(zip.readAllBytes()));
+            assertNull(zip.getNextEntry());
+        }
+    }
+
+    @Test
+    void exportsTarInFacultyOrder() throws IOException {
+        stubDatabaseContent();
+        when(avatarRepository.streamInfoByFacultyId(3L)).thenReturn(Stream.of(onDisk, inDb));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.export(3L, AvatarArchiveFormat.TAR, out);
+
+        byte[] tar = out.toByteArray();
+        assertEquals(6 * 512, tar.length);
+        assertEquals("10.jpg", headerString(tar, 0, 100));
+        assertEquals("00000000012", headerString(tar, 124, 12));
+        assertEquals("ustar", headerString(tar, 257, 6));
+        assertEquals("0123456789", new String(tar, 512, 10, StandardCharsets.US_ASCII));
+        assertEquals("20.png", headerString(tar, 1024, 100));
+        assertEquals("db-png", new String(tar, 1536, 6, StandardCharsets.US_ASCII));
+        assertTrue(Arrays.equals(new byte[1024], Arrays.copyOfRange(tar, 2048, 3072)));
+    }
+
+    @Test
+    void skipsAvatarsWithMissingFiles() throws IOException {
+        AvatarInfo missing = new AvatarInfo(3, 30, "images/c", 4, MediaType.IMAGE_PNG_VALUE, "c", null,
+                AvatarStorageMode.DISK);
+        when(avatarService.getAvatarFile(missing)).thenThrow(new AvatarNotFoundException("Аватар не найден"));
+        when(avatarRepository.streamAllInfo()).thenReturn(Stream.of(missing, onDisk));
+
+        long exported = exportService.export(null, AvatarArchiveFormat.TAR, new ByteArrayOutputStream());
+
+        assertEquals(1, exported);
+    }
+
+    private void stubDatabaseContent() throws IOException {
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(1).write("db-png".getBytes());
+            return null;
+        }).when(blobStreamer).stream(eq(inDb), any());
+    }
+
+    private String headerString(byte[] tar, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && tar[end] != 0) {
+            end++;
+        }
+        return new String(tar, offset, end - offset, StandardCharsets.US_ASCII);
+    }
+}
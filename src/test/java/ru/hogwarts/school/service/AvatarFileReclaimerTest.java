@@ -0,0 +1,94 @@
+package ru.hogwarts.school.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.hogwarts.school.repository.AvatarRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AvatarFileReclaimerTest {
+    static final String USED = "2cc218346d962416fde239189f2ced20399ec8f223308c0c9e21ef0cd7a8e41a";
+    static final String UNUSED = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+
+    @Mock
+    AvatarService avatarService;
+
+    @Mock
+    AvatarRepository avatarRepository;
+
+    Path testDir;
+
+    AvatarFileReclaimer reclaimer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        testDir = Files.createTempDirectory("test-reclaimer");
+        reclaimer = new AvatarFileReclaimer(avatarService, avatarRepository, testDir, true, 2, 0, Duration.ofHours(1));
+    }
+
+    @Test
+    void removesStaleSpoolFilesAndUnreferencedLegacyFiles() throws IOException {
+        Path spool = oldFile(testDir.resolve("spool.upload"));
+        Path fresh = Files.writeString(testDir.resolve("fresh.upload"), "avatar");
+        Path legacy = oldFile(testDir.resolve("legacy.png"));
+        Path orphan = oldFile(testDir.resolve("orphan.png"));
+        when(avatarRepository.findFilePathsIn(any())).thenReturn(Set.of(legacy.toString()));
+
+        long removed = reclaimer.reclaim();
+
+        assertEquals(2, removed);
+        assertTrue(Files.notExists(spool));
+        assertTrue(Files.notExists(orphan));
+        assertTrue(Files.exists(fresh));
+        assertTrue(Files.exists(legacy));
+    }
+
+    @Test
+    void releasesOnlyUnreferencedContent() throws IOException {
+        oldFile(testDir.resolve("2c").resolve("c2").resolve(USED));
+        oldFile(testDir.resolve("9f").resolve("86").resolve(UNUSED));
+        when(avatarRepository.findContentHashesWithFile(any())).thenReturn(Set.of(USED));
+
+        reclaimer.reclaim();
+
+        verify(avatarService).deleteContentFileIfUnused(UNUSED);
+        verify(avatarService, never()).deleteContentFileIfUnused(USED);
+    }
+
+    @Test
+    void removesRenditionsOfMissingOriginalsAndSkipsPacks() throws IOException {
+        Path original = oldFile(testDir.resolve("2c").resolve("c2").resolve(USED));
+        Path kept = oldFile(original.resolveSibling(USED + "_48.jpg"));
+        Path orphan = oldFile(testDir.resolve("9f").resolve("86").resolve(UNUSED + "_48.png"));
+        Path segment = oldFile(testDir.resolve("packs").resolve("segment-000001.pack"));
+        when(avatarRepository.findContentHashesWithFile(any())).thenReturn(Set.of(USED));
+
+        reclaimer.reclaim();
+
+        assertTrue(Files.exists(kept));
+        assertTrue(Files.notExists(orphan));
+        assertTrue(Files.exists(segment));
+        verifyNoMoreInteractions(avatarService);
+    }
+
+    private Path oldFile(Path path) throws IOException {
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, "avatar");
+        Files.setLastModifiedTime(path, FileTime.from(Instant.now().minus(Duration.ofDays(1))));
+        return path;
+    }
+}
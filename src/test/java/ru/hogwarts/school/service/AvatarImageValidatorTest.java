@@ -0,0 +1,79 @@
+package ru.hogwarts.school.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.util.unit.DataSize;
+import ru.hogwarts.school.exceptions.ImageTooLargeException;
+import ru.hogwarts.school.exceptions.InvalidImageException;
+import ru.hogwarts.school.model.dto.AvatarImageHeader;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AvatarImageValidatorTest {
+    AvatarImageValidator validator = new AvatarImageValidator(DataSize.ofKilobytes(64), 10_000, DataSize.ofKilobytes(16));
+
+    @Test
+    void validateReadsDimensionsAndRewindsStream() throws IOException {
+        byte[] png = image(80, 60, "png");
+        BufferedInputStream in = new BufferedInputStream(new ByteArrayInputStream(png));
+
+        AvatarImageHeader header = validator.validate(in);
+
+        assertEquals(MediaType.IMAGE_PNG, header.getMediaType());
+        assertEquals(80, header.getWidth());
+        assertEquals(60, header.getHeight());
+        assertArrayEquals(png, in.readAllBytes());
+    }
+
+    @Test
+    void validateDetectsJpegRegardlessOfDeclaredType() throws IOException {
+        AvatarImageHeader header = validator.validate(new BufferedInputStream(new ByteArrayInputStream(image(30, 20, "jpg"))));
+
+        assertEquals(MediaType.IMAGE_JPEG, header.getMediaType());
+        assertEquals(30, header.getWidth());
+    }
+
+    @Test
+    void validateRejectsNonImagesAndTruncatedHeaders() throws IOException {
+        byte[] png = image(80, 60, "png");
+        byte[] truncated = new byte[12];
+        System.arraycopy(png, 0, truncated, 0, truncated.length);
+
+        assertThrows(InvalidImageException.class,
+                () -> validator.validate(new BufferedInputStream(new ByteArrayInputStream("<html></html>".getBytes()))));
+        assertThrows(InvalidImageException.class,
+                () -> validator.validate(new BufferedInputStream(new ByteArrayInputStream(truncated))));
+    }
+
+    @Test
+    void validateRejectsImagesAboveThePixelLimit() throws IOException {
+        byte[] png = image(200, 100, "png");
+
+        assertThrows(ImageTooLargeException.class,
+                () -> validator.validate(new BufferedInputStream(new ByteArrayInputStream(png))));
+    }
+
+    @Test
+    void limitStopsReadingPastTheByteLimit() throws IOException {
+        InputStream in = validator.limit(new ByteArrayInputStream(new byte[70 * 1024]));
+
+        assertThrows(ImageTooLargeException.class, () -> in.transferTo(OutputStream.nullOutputStream()));
+        assertThrows(ImageTooLargeException.class, () -> validator.checkSize(65 * 1024));
+    }
+
+    private byte[] image(int width, int height, String format) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,105 @@
+package ru.hogwarts.school.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import ru.hogwarts.school.exceptions.StudentNotFoundException;
+import ru.hogwarts.school.exceptions.UploadQueueFullException;
+import ru.hogwarts.school.model.dto.AvatarUploadJobState;
+import ru.hogwarts.school.model.dto.AvatarUploadJobStatus;
+import ru.hogwarts.school.model.dto.AvatarUploadResult;
+import ru.hogwarts.school.model.dto.StoredAvatarFile;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class AvatarIngestionServiceTest {
+    AvatarService avatarService = mock(AvatarService.class);
+
+    StudentRepository studentRepository = mock(StudentRepository.class);
+
+    AvatarIngestionService ingestionService =
+            new AvatarIngestionService(avatarService, studentRepository, 1, 1, Duration.ofHours(1));
+
+    MockMultipartFile file = new MockMultipartFile("file", "avatar.png", MediaType.IMAGE_PNG_VALUE, new byte[]{1, 2, 3});
+
+    Path testDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        testDir = Files.createTempDirectory("test-ingestion");
+        when(avatarService.spoolAvatarFile(any())).thenAnswer(invocation ->
+                new StoredAvatarFile(Files.createTempFile(testDir, "spool", ".upload"), 3, "hash"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        ingestionService.shutdown();
+    }
+
+    AvatarUploadJobStatus awaitFinished(UUID id) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            AvatarUploadJobStatus status = ingestionService.getJob(id);
+            if (status.getState() == AvatarUploadJobState.DONE || status.getState() == AvatarUploadJobState.FAILED) {
+                return status;
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("Job " + id + " did not finish");
+    }
+
+    @Test
+    void submittedUploadIsPersistedByWorker() throws Exception {
+        when(studentRepository.existsById(1L)).thenReturn(true);
+        when(avatarService.saveAvatars(anyList())).thenReturn(List.of(AvatarUploadResult.uploaded("avatar.png", 1L, 7L)));
+
+        AvatarUploadJobStatus queued = ingestionService.submit(1L, file);
+        AvatarUploadJobStatus finished = awaitFinished(queued.getId());
+
+        assertEquals(AvatarUploadJobState.DONE, finished.getState());
+        assertEquals(7L, finished.getAvatarId());
+        assertEquals(1, ingestionService.getQueueStatus().getCompleted());
+    }
+
+    @Test
+    void submitRejectsUnknownStudentBeforeSpooling() throws IOException {
+        when(studentRepository.existsById(2L)).thenReturn(false);
+
+        assertThrows(StudentNotFoundException.class, () -> ingestionService.submit(2L, file));
+        verify(avatarService, never()).spoolAvatarFile(any());
+    }
+
+    @Test
+    void submitAppliesBackpressureWhenQueueIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(studentRepository.existsById(1L)).thenReturn(true);
+        when(avatarService.saveAvatars(anyList())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return List.of(AvatarUploadResult.uploaded("avatar.png", 1L, 7L));
+        });
+
+        ingestionService.submit(1L, file);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        ingestionService.submit(1L, file);
+
+        assertThrows(UploadQueueFullException.class, () -> ingestionService.submit(1L, file));
+        assertEquals(1, ingestionService.getQueueStatus().getQueued());
+        release.countDown();
+    }
+}
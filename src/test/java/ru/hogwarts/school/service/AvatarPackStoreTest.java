@@ -0,0 +1,198 @@
+package ru.hogwarts.school.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AvatarPackStoreTest {
+    static final String HASH_A = "a".repeat(64);
+    static final String HASH_B = "b".repeat(64);
+    static final String HASH_C = "c".repeat(64);
+
+    Path testDir;
+
+    AvatarPackStore packStore;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        testDir = Files.createTempDirectory("test-packs");
+        packStore = newStore();
+    }
+
+    @AfterEach
+    void tearDown() {
+        packStore.close();
+    }
+
+    AvatarPackStore newStore() {
+        return new AvatarPackStore(testDir, DataSize.ofBytes(200), 0.5);
+    }
+
+    AvatarPackStore reopen() {
+        packStore.close();
+        packStore = newStore();
+        return packStore;
+    }
+
+    static byte[] bytes(int length, int seed) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (seed + i);
+        }
+        return data;
+    }
+
+    static byte[] toArray(ByteBuffer buffer) {
+        byte[] data = new byte[buffer.remaining()];
+        buffer.get(data);
+        return data;
+    }
+
+    long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(testDir.resolve("packs"))) {
+            return files.count();
+        }
+    }
+
+    @Test
+    void readsAppendedContentFromFileAndBytes() throws IOException {
+        Path source = Files.write(testDir.resolve("source"), bytes(50, 1));
+        packStore.put(HASH_A, source);
+        packStore.put(HASH_B, bytes(30, 7));
+
+        assertArrayEquals(bytes(50, 1), toArray(packStore.read(HASH_A)));
+        assertArrayEquals(bytes(30, 7), packStore.get(HASH_B));
+        assertArrayEquals(bytes(30, 7), packStore.stream(HASH_B).readAllBytes());
+        assertNull(packStore.read(HASH_C));
+        assertTrue(Files.notExists(source));
+    }
+
+    @Test
+    void rebuildsIndexAfterReopen() throws IOException {
+        packStore.put(HASH_A, bytes(50, 1));
+        packStore.put(HASH_B, bytes(30, 7));
+        packStore.delete(HASH_A);
+
+        AvatarPackStore reopened = reopen();
+
+        assertFalse(reopened.contains(HASH_A));
+        assertArrayEquals(bytes(30, 7), toArray(reopened.read(HASH_B)));
+    }
+
+    @Test
+    void rollsOverToNewSegmentWhenFull() throws IOException {
+        packStore.put(HASH_A, bytes(100, 1));
+        packStore.put(HASH_B, bytes(100, 2));
+
+        assertEquals(2, segmentCount());
+        assertArrayEquals(bytes(100, 1), toArray(packStore.read(HASH_A)));
+    }
+
+    @Test
+    void compactionMovesLiveEntriesAndRemovesSegment() throws IOException {
+        packStore.put(HASH_A, bytes(60, 1));
+        packStore.put(HASH_B, bytes(40, 2));
+        packStore.put(HASH_C, bytes(100, 3));
+        assertEquals(2, segmentCount());
+
+        packStore.delete(HASH_A);
+        packStore.compact();
+
+        assertTrue(Files.notExists(testDir.resolve("packs").resolve("segment-000001.pack")));
+        assertArrayEquals(bytes(40, 2), toArray(packStore.read(HASH_B)));
+        assertArrayEquals(bytes(100, 3), toArray(packStore.read(HASH_C)));
+
+        AvatarPackStore reopened = reopen();
+        assertFalse(reopened.contains(HASH_A));
+        assertArrayEquals(bytes(40, 2), toArray(reopened.read(HASH_B)));
+    }
+
+    @Test
+    void truncatesTornRecordOnReopen() throws IOException {
+        packStore.put(HASH_A, bytes(20, 1));
+        packStore.close();
+        Path segment = testDir.resolve("packs").resolve("segment-000001.pack");
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(bytes(10, 9)));
+        }
+
+        AvatarPackStore reopened = reopen();
+
+        assertArrayEquals(bytes(20, 1), toArray(reopened.read(HASH_A)));
+        assertEquals(AvatarPackStore.HEADER_SIZE + 20, Files.size(segment));
+    }
+
+    @Test
+    void failedAppendIsRolledBackAndNotPublished() throws IOException {
+        packStore.put(HASH_A, bytes(20, 1));
+        Path segment = testDir.resolve("packs").resolve("segment-000001.pack");
+
+        assertThrows(IllegalArgumentException.class, () -> packStore.put("z".repeat(64), bytes(30, 5)));
+        assertEquals(AvatarPackStore.HEADER_SIZE + 20, Files.size(segment));
+        packStore.put(HASH_B, bytes(30, 7));
+
+        AvatarPackStore reopened = reopen();
+        assertArrayEquals(bytes(20, 1), toArray(reopened.read(HASH_A)));
+        assertArrayEquals(bytes(30, 7), toArray(reopened.read(HASH_B)));
+        assertEquals(2 * AvatarPackStore.HEADER_SIZE + 50, Files.size(segment));
+    }
+
+    @Test
+    void readsSurviveConcurrentCompaction() throws Exception {
+        packStore.put(HASH_C, bytes(40, 3));
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (running.get() && failure.get() == null) {
+                try {
+                    ByteBuffer live = packStore.read(HASH_C);
+                    assertArrayEquals(bytes(40, 3), toArray(live));
+                    ByteBuffer churned = packStore.read(HASH_B);
+                    if (churned != null) {
+                        assertArrayEquals(bytes(40, 2), toArray(churned));
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            }
+        });
+        reader.start();
+        try {
+            for (int i = 0; i < 500 && failure.get() == null; i++) {
+                packStore.put(HASH_B, bytes(40, 2));
+                packStore.delete(HASH_B);
+                packStore.compact();
+            }
+        } finally {
+            running.set(false);
+            reader.join();
+        }
+
+        assertNull(failure.get());
+        assertArrayEquals(bytes(40, 3), toArray(packStore.read(HASH_C)));
+    }
+
+    @Test
+    void appendsAfterReadKeepEarlierBuffersValid() throws IOException {
+        packStore.put(HASH_A, bytes(30, 1));
+        ByteBuffer first = packStore.read(HASH_A);
+        packStore.put(HASH_B, bytes(30, 2));
+
+        assertArrayEquals(bytes(30, 2), toArray(packStore.read(HASH_B)));
+        assertArrayEquals(bytes(30, 1), toArray(first));
+        assertArrayEquals(bytes(30, 1), toArray(packStore.read(HASH_A)));
+    }
+}
@@ -3,29 +3,57 @@ package ru.hogwarts.school.service;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
+import ru.hogwarts.school.exceptions.InvalidCursorException;
+import ru.hogwarts.school.exceptions.InvalidPageSizeException;
+import ru.hogwarts.school.exceptions.InvalidImageException;
 import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.model.AvatarContent;
+import ru.hogwarts.school.model.AvatarStorageEngine;
+import ru.hogwarts.school.model.AvatarStorageMode;
 import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.model.dto.AvatarImageHeader;
+import ru.hogwarts.school.model.dto.AvatarInfo;
+import ru.hogwarts.school.model.dto.AvatarPage;
+import ru.hogwarts.school.model.dto.AvatarUploadResult;
+import ru.hogwarts.school.model.dto.SpooledAvatar;
+import ru.hogwarts.school.model.dto.StoredAvatarFile;
+import ru.hogwarts.school.repository.AvatarContentRepository;
 import ru.hogwarts.school.repository.AvatarRepository;
 import ru.hogwarts.school.repository.StudentRepository;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
@@ -34,10 +62,29 @@ class AvatarServiceTest {
     @Mock
     AvatarRepository avatarRepository;
 
+    @Mock
+    AvatarContentRepository avatarContentRepository;
+
     @Mock
     StudentRepository studentRepository;
 
-    @InjectMocks
+    @Mock
+    AvatarCache avatarCache;
+
+    @Mock
+    AvatarThumbnailService thumbnailService;
+
+    @Mock
+    AvatarImageValidator imageValidator;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    @Mock
+    AvatarBlobStreamer blobStreamer;
+
+    InMemoryAvatarStore memoryStore = new InMemoryAvatarStore(AvatarStorageEngine.PACK);
+
     AvatarService avatarService;
 
     @Mock
@@ -45,10 +92,17 @@ class AvatarServiceTest {
 
     Student student = new Student("Олег Тестов", 11);
 
+    Path testDir;
+
     @BeforeEach
     void setUp() throws IOException {
-        Path testDir = Files.createTempDirectory("test-avatars");
+        testDir = Files.createTempDirectory("test-avatars");
+        avatarService = new AvatarService(avatarRepository, avatarContentRepository, studentRepository, avatarCache,
+                thumbnailService, List.of(new FileSystemAvatarStore(testDir), memoryStore), imageValidator,
+                new TransactionTemplate(transactionManager), blobStreamer);
         avatarService.setPathDir(testDir);
+        lenient().when(imageValidator.validate(any())).thenReturn(new AvatarImageHeader(MediaType.IMAGE_JPEG, 1, 1));
+        lenient().when(imageValidator.limit(any())).thenAnswer(invocation -> invocation.getArgument(0));
     }
 
 
@@ -68,22 +122,359 @@ class AvatarServiceTest {
         assertEquals(actualId, avatar.getId());
     }
 
+    @Test
+    void uploadAvatarRemovesSpooledFileWhenContentCannotBeStored() throws IOException {
+        MockMultipartFile mockFile = new MockMultipartFile("test", "test.jpg", MediaType.IMAGE_JPEG_VALUE, "avatar".getBytes());
+
+        when(studentRepository.findById(anyLong())).thenReturn(Optional.of(student));
+        when(avatarContentRepository.retain(anyString())).thenThrow(new IllegalStateException("database is down"));
+
+        //test
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertThrows(IllegalStateException.class, () -> avatarService.uploadAvatar(1L, mockFile));
+            TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                    TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        //check
+        try (Stream<Path> files = Files.walk(testDir)) {
+            assertEquals(0, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    void uploadAvatarRejectsInvalidImageBeforeWritingAnything() throws IOException {
+        MockMultipartFile mockFile = new MockMultipartFile("test", "test.jpg", MediaType.IMAGE_JPEG_VALUE, "not-an-image".getBytes());
+
+        when(studentRepository.findById(anyLong())).thenReturn(Optional.of(student));
+        when(imageValidator.validate(any())).thenThrow(new InvalidImageException("Файл не является изображением"));
+
+        //test
+        assertThrows(InvalidImageException.class, () -> avatarService.uploadAvatar(1L, mockFile));
+
+        //check
+        verifyNoInteractions(avatarContentRepository);
+        verify(avatarRepository, never()).save(any(Avatar.class));
+        try (Stream<Path> files = Files.list(testDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void uploadAvatarStoresDetectedMediaType() throws IOException {
+        MockMultipartFile mockFile = new MockMultipartFile("test", "test.jpg", MediaType.APPLICATION_OCTET_STREAM_VALUE, "avatar".getBytes());
+
+        when(studentRepository.findById(anyLong())).thenReturn(Optional.of(student));
+        when(imageValidator.validate(any())).thenReturn(new AvatarImageHeader(MediaType.IMAGE_PNG, 1, 1));
+        when(avatarRepository.save(any(Avatar.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        //test
+        avatarService.uploadAvatar(1L, mockFile);
+
+        //check
+        ArgumentCaptor<Avatar> captor = ArgumentCaptor.forClass(Avatar.class);
+        verify(avatarRepository).save(captor.capture());
+        assertEquals(MediaType.IMAGE_PNG_VALUE, captor.getValue().getMediaType());
+    }
+
+    @Test
+    void uploadAvatarStoresSizeAndContentHash() throws IOException {
+        byte[] content = "avatar-content".getBytes();
+        MockMultipartFile mockFile = new MockMultipartFile("test", "test.jpg", MediaType.IMAGE_JPEG_VALUE, content);
+
+        when(studentRepository.findById(anyLong())).thenReturn(Optional.of(student));
+        when(avatarRepository.save(any(Avatar.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        //test
+        avatarService.uploadAvatar(1L, mockFile);
+
+        //check
+        ArgumentCaptor<Avatar> captor = ArgumentCaptor.forClass(Avatar.class);
+        verify(avatarRepository).save(captor.capture());
+        Avatar saved = captor.getValue();
+        assertEquals(content.length, saved.getFileSize());
+        assertEquals("2cc218346d962416fde239189f2ced20399ec8f223308c0c9e21ef0cd7a8e41a", saved.getContentHash());
+        Path expectedPath = testDir.resolve("2c").resolve("c2").resolve(saved.getContentHash());
+        assertEquals(expectedPath.toString(), saved.getFilePath());
+        assertArrayEquals(content, Files.readAllBytes(expectedPath));
+    }
+
+    @Test
+    void uploadAvatarInDbModeDoesNotWriteFile() throws IOException {
+        byte[] content = "avatar-content".getBytes();
+        MockMultipartFile mockFile = new MockMultipartFile("test", "test.jpg", MediaType.IMAGE_JPEG_VALUE, content);
+        avatarService.setStorageMode(AvatarStorageMode.DB);
+
+        when(studentRepository.findById(anyLong())).thenReturn(Optional.of(student));
+        when(avatarRepository.save(any(Avatar.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        //test
+        avatarService.uploadAvatar(1L, mockFile);
+
+        //check
+        ArgumentCaptor<Avatar> captor = ArgumentCaptor.forClass(Avatar.class);
+        verify(avatarRepository).save(captor.capture());
+        Avatar saved = captor.getValue();
+        assertNull(saved.getFilePath());
+        assertEquals(AvatarStorageMode.DB, saved.getStorage());
+        assertEquals("2cc218346d962416fde239189f2ced20399ec8f223308c0c9e21ef0cd7a8e41a", saved.getContentHash());
+
+        ArgumentCaptor<AvatarContent> contentCaptor = ArgumentCaptor.forClass(AvatarContent.class);
+        verify(avatarContentRepository).save(contentCaptor.capture());
+        assertArrayEquals(content, contentCaptor.getValue().getData());
+        assertTrue(contentCaptor.getValue().isNew());
+        try (Stream<Path> files = Files.list(testDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void uploadAvatarWithNonFileEngineKeepsContentOffDisk() throws IOException {
+        byte[] content = "avatar-content".getBytes();
+        String hash = "2cc218346d962416fde239189f2ced20399ec8f223308c0c9e21ef0cd7a8e41a";
+        MockMultipartFile mockFile = new MockMultipartFile("test", "test.jpg", MediaType.IMAGE_JPEG_VALUE, content);
+        avatarService.setStorageMode(AvatarStorageMode.DISK);
+        avatarService.setStorageEngine(AvatarStorageEngine.PACK);
+
+        when(studentRepository.findById(anyLong())).thenReturn(Optional.of(student));
+        when(avatarRepository.save(any(Avatar.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        //test
+        avatarService.uploadAvatar(1L, mockFile);
+
+        //check
+        ArgumentCaptor<Avatar> captor = ArgumentCaptor.forClass(Avatar.class);
+        verify(avatarRepository).save(captor.capture());
+        assertEquals("memory:" + hash, captor.getValue().getFilePath());
+        assertArrayEquals(content, memoryStore.get(hash));
+        verify(thumbnailService, never()).scheduleRenditions(any());
+        try (Stream<Path> files = Files.list(testDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void uploadAvatarReusesStoredContent() throws IOException {
+        byte[] content = "avatar-content".getBytes();
+        String hash = "2cc218346d962416fde239189f2ced20399ec8f223308c0c9e21ef0cd7a8e41a";
+        Files.write(testDir.resolve(hash), content);
+        MockMultipartFile mockFile = new MockMultipartFile("test", "test.jpg", MediaType.IMAGE_JPEG_VALUE, content);
+        avatarService.setStorageMode(AvatarStorageMode.DISK);
+        Avatar oldAvatar = new Avatar(testDir.resolve("old").toString(), 3, MediaType.IMAGE_JPEG_VALUE, null, student);
+        oldAvatar.setId(5L);
+        oldAvatar.setContentHash("old");
+
+        when(studentRepository.findById(anyLong())).thenReturn(Optional.of(student));
+        when(avatarContentRepository.retain(hash)).thenReturn(1);
+        when(avatarContentRepository.release("old")).thenReturn(1);
+        when(avatarContentRepository.deleteIfUnreferenced("old")).thenReturn(0);
+        when(avatarRepository.findByStudentId(1L)).thenReturn(oldAvatar);
+        when(avatarRepository.save(any(Avatar.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        //test
+        long actualId = avatarService.uploadAvatar(1L, mockFile);
+
+        //check
+        assertEquals(5L, actualId);
+        verify(avatarContentRepository, never()).save(any(AvatarContent.class));
+        try (Stream<Path> files = Files.list(testDir)) {
+            assertEquals(List.of(testDir.resolve(hash)), files.toList());
+        }
+    }
+
+    @Test
+    void saveAvatarsResolvesStudentsAndAvatarsInBatches() throws IOException {
+        student.setId(1L);
+        Avatar existing = new Avatar(null, 3, MediaType.IMAGE_JPEG_VALUE, null, student);
+        existing.setId(5L);
+        existing.setContentHash("old");
+        when(imageValidator.validate(any())).thenReturn(new AvatarImageHeader(MediaType.IMAGE_PNG, 1, 1));
+        SpooledAvatar known = new SpooledAvatar("1.png", 1L, MediaType.IMAGE_PNG_VALUE,
+                avatarService.spoolAvatarFile(new ByteArrayInputStream("avatar-content".getBytes())));
+        StoredAvatarFile unknownFile = avatarService.spoolAvatarFile(new ByteArrayInputStream("other".getBytes()));
+        SpooledAvatar unknown = new SpooledAvatar("2.png", 2L, MediaType.IMAGE_PNG_VALUE, unknownFile);
+
+        when(studentRepository.findAllById(Set.of(1L, 2L))).thenReturn(List.of(student));
+        when(avatarRepository.findAllByStudentIdIn(Set.of(1L, 2L))).thenReturn(List.of(existing));
+        when(avatarContentRepository.release("old")).thenReturn(1);
+
+        //test
+        List<AvatarUploadResult> results = avatarService.saveAvatars(List.of(known, unknown));
+
+        //check
+        assertEquals(2, results.size());
+        assertEquals(5L, results.get(0).getAvatarId());
+        assertTrue(results.get(0).isUploaded());
+        assertEquals("Студент с id 2 не найден", results.get(1).getError());
+        assertEquals("2cc218346d962416fde239189f2ced20399ec8f223308c0c9e21ef0cd7a8e41a", existing.getContentHash());
+        assertEquals(MediaType.IMAGE_PNG_VALUE, existing.getMediaType());
+        assertTrue(Files.notExists(unknownFile.getPath()));
+        verify(transactionManager, times(1)).commit(any());
+        InOrder contentOrder = inOrder(avatarContentRepository);
+        contentOrder.verify(avatarContentRepository).retain(existing.getContentHash());
+        contentOrder.verify(avatarContentRepository).release("old");
+        InOrder avatarOrder = inOrder(avatarRepository);
+        avatarOrder.verify(avatarRepository).saveAll(List.of(existing));
+        avatarOrder.verify(avatarRepository).flush();
+        verify(avatarRepository, never()).save(any(Avatar.class));
+        verify(studentRepository, never()).findById(anyLong());
+        verify(avatarRepository, never()).findByStudentId(anyLong());
+    }
+
+    @Test
+    void saveAvatarsWritesEachChunkInOneTransaction() throws IOException {
+        avatarService.setChunkSize(2);
+        Student other = new Student("Анна Тестова", 12);
+        student.setId(1L);
+        other.setId(2L);
+        List<SpooledAvatar> uploads = new ArrayList<>();
+        for (long studentId = 1; studentId <= 2; studentId++) {
+            for (int copy = 0; copy < 2; copy++) {
+                uploads.add(new SpooledAvatar(studentId + "-" + copy + ".jpg", studentId, MediaType.IMAGE_JPEG_VALUE,
+                        avatarService.spoolAvatarFile(new ByteArrayInputStream(("avatar-" + studentId + copy).getBytes()))));
+            }
+        }
+        when(studentRepository.findAllById(Set.of(1L))).thenReturn(List.of(student));
+        when(studentRepository.findAllById(Set.of(2L))).thenReturn(List.of(other));
+
+        //test
+        List<AvatarUploadResult> results = avatarService.saveAvatars(uploads);
+
+        //check
+        assertTrue(results.stream().allMatch(AvatarUploadResult::isUploaded));
+        verify(transactionManager, times(2)).commit(any());
+        ArgumentCaptor<List<Avatar>> saved = ArgumentCaptor.forClass(List.class);
+        verify(avatarRepository, times(2)).saveAll(saved.capture());
+        assertEquals(1, saved.getAllValues().get(0).size());
+        assertEquals(uploads.get(1).getFile().getContentHash(), saved.getAllValues().get(0).get(0).getContentHash());
+        verify(avatarRepository, times(2)).flush();
+        verify(avatarContentRepository, times(4)).retain(anyString());
+    }
+
+    @Test
+    void saveAvatarsReportsFailedItemsAndKeepsGoing() throws IOException {
+        student.setId(1L);
+        avatarService.setStorageMode(AvatarStorageMode.DB);
+        SpooledAvatar lost = new SpooledAvatar("lost.jpg", 1L, MediaType.IMAGE_JPEG_VALUE,
+                avatarService.spoolAvatarFile(new ByteArrayInputStream("lost".getBytes())));
+        SpooledAvatar kept = new SpooledAvatar("kept.jpg", 1L, MediaType.IMAGE_JPEG_VALUE,
+                avatarService.spoolAvatarFile(new ByteArrayInputStream("kept".getBytes())));
+        Files.delete(lost.getFile().getPath());
+        when(studentRepository.findAllById(Set.of(1L))).thenReturn(List.of(student));
+
+        //test
+        List<AvatarUploadResult> results = avatarService.saveAvatars(List.of(lost, kept));
+
+        //check
+        assertEquals("Не удалось сохранить файл", results.get(0).getError());
+        assertTrue(results.get(1).isUploaded());
+        verify(avatarContentRepository, times(1)).retain(anyString());
+        verify(avatarContentRepository).retain(kept.getFile().getContentHash());
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    void saveAvatarsFailsOnlyTheChunkThatCouldNotBeWritten() throws IOException {
+        avatarService.setChunkSize(1);
+        student.setId(1L);
+        SpooledAvatar first = new SpooledAvatar("1.jpg", 1L, MediaType.IMAGE_JPEG_VALUE,
+                avatarService.spoolAvatarFile(new ByteArrayInputStream("first".getBytes())));
+        SpooledAvatar second = new SpooledAvatar("2.jpg", 1L, MediaType.IMAGE_JPEG_VALUE,
+                avatarService.spoolAvatarFile(new ByteArrayInputStream("second".getBytes())));
+        when(studentRepository.findAllById(Set.of(1L))).thenReturn(List.of(student));
+        doThrow(new DataIntegrityViolationException("duplicate")).doNothing().when(avatarRepository).flush();
+
+        //test
+        List<AvatarUploadResult> results = avatarService.saveAvatars(List.of(first, second));
+
+        //check
+        assertEquals("Не удалось сохранить аватар", results.get(0).getError());
+        assertTrue(results.get(1).isUploaded());
+        verify(transactionManager, times(1)).rollback(any());
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    void getCachedAvatarFillsCacheFromBlobStream() throws IOException {
+        AvatarInfo info = new AvatarInfo(1L, 1L, null, 6L, MediaType.IMAGE_JPEG_VALUE, "hash1", null, null);
+        ByteArrayOutputStream filled = new ByteArrayOutputStream();
+        when(avatarCache.accepts(6L)).thenReturn(true);
+        when(avatarCache.put(eq("hash1"), eq(6L), any(AvatarCache.ContentWriter.class))).thenAnswer(invocation -> {
+            AvatarCache.ContentWriter content = invocation.getArgument(2);
+            content.writeTo(filled);
+            return null;
+        });
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(1).write("avatar".getBytes());
+            return null;
+        }).when(blobStreamer).stream(eq(info), any());
+
+        //test
+        assertNull(avatarService.getCachedAvatar(info, true));
+
+        //check
+        assertEquals("avatar", filled.toString());
+        verify(blobStreamer, times(1)).stream(eq(info), any());
+        verifyNoInteractions(avatarRepository, avatarContentRepository);
+    }
+
     @Test
     void testGetAvatars() {
         int pageNumber = 1;
         int pageSize = 2;
-        List<Avatar> expected = new ArrayList<>(List.of(new Avatar(), new Avatar()));
-        Page<Avatar> avatarPage = new PageImpl<>(expected, PageRequest.of(pageNumber - 1, pageSize), expected.size());
+        List<AvatarInfo> expected = new ArrayList<>(List.of(
+                new AvatarInfo(1L, 1L, "images/1.jpg", 10L, MediaType.IMAGE_JPEG_VALUE, "hash1", null, null),
+                new AvatarInfo(2L, 2L, "images/2.jpg", 20L, MediaType.IMAGE_JPEG_VALUE, "hash2", null, null)));
 
-        when(avatarRepository.findAll(PageRequest.of(pageNumber - 1, pageSize))).thenReturn(avatarPage);
+        when(avatarRepository.findAllInfo(PageRequest.of(pageNumber - 1, pageSize))).thenReturn(expected);
 
         //test
-        List<Avatar> actual = avatarService.getAvatars(pageNumber, pageSize);
+        List<AvatarInfo> actual = avatarService.getAvatars(pageNumber, pageSize);
 
         //check
         assertEquals(2, actual.size());
         assertEquals(expected, actual);
-        verify(avatarRepository).findAll(PageRequest.of(pageNumber - 1, pageSize));
+        verify(avatarRepository).findAllInfo(PageRequest.of(pageNumber - 1, pageSize));
+        verify(avatarRepository, never()).findAll(any(Pageable.class));
+    }
+
+    @Test
+    void getAvatarsAfterSeeksPastCursorAndReturnsNextCursor() {
+        List<AvatarInfo> rows = List.of(
+                new AvatarInfo(11L, 1L, null, 10L, MediaType.IMAGE_JPEG_VALUE, "hash1", null, null),
+                new AvatarInfo(12L, 2L, null, 20L, MediaType.IMAGE_JPEG_VALUE, "hash2", null, null),
+                new AvatarInfo(13L, 3L, null, 30L, MediaType.IMAGE_JPEG_VALUE, "hash3", null, null));
+        when(avatarRepository.findInfoAfter(0L, Limit.of(3))).thenReturn(rows);
+        when(avatarRepository.findInfoAfter(12L, Limit.of(3))).thenReturn(rows.subList(2, 3));
+
+        //test
+        AvatarPage first = avatarService.getAvatarsAfter(null, 2);
+        AvatarPage second = avatarService.getAvatarsAfter(first.getNext(), 2);
+
+        //check
+        assertEquals(rows.subList(0, 2), first.getAvatars());
+        assertEquals(rows.subList(2, 3), second.getAvatars());
+        assertNull(second.getNext());
+        verify(avatarRepository, never()).findAllInfo(any(Pageable.class));
+    }
+
+    @Test
+    void getAvatarsAfterCapsPageSize() {
+        AvatarInfo row = new AvatarInfo(11L, 1L, null, 10L, MediaType.IMAGE_JPEG_VALUE, "hash1", null, null);
+        when(avatarRepository.findInfoAfter(0L, Limit.of(501))).thenReturn(List.of(row));
+
+        assertEquals(List.of(row), avatarService.getAvatarsAfter(null, Integer.MAX_VALUE).getAvatars());
+        assertThrows(InvalidPageSizeException.class, () -> avatarService.getAvatarsAfter(null, 0));
+        assertThrows(InvalidPageSizeException.class, () -> avatarService.getAvatarsAfter(null, -1));
+    }
+
+    @Test
+    void getAvatarsAfterRejectsForeignCursor() {
+        assertThrows(InvalidCursorException.class, () -> avatarService.getAvatarsAfter("bm90LWEtY3Vyc29y", 2));
+        assertThrows(InvalidCursorException.class, () -> avatarService.getAvatarsAfter("%%%", 2));
     }
 
     @Test
@@ -0,0 +1,78 @@
+package ru.hogwarts.school.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AvatarThumbnailServiceTest {
+    AvatarThumbnailService thumbnailService = new AvatarThumbnailService(List.of(128, 48, 512), 1, 1);
+
+    Path testDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        testDir = Files.createTempDirectory("test-thumbnails");
+    }
+
+    Path writeImage(int width, int height, int type, String format) throws IOException {
+        Path original = testDir.resolve("content-" + width);
+        ImageIO.write(new BufferedImage(width, height, type), format, original.toFile());
+        return original;
+    }
+
+    @Test
+    void createsDownscaledRenditionsOnly() throws IOException {
+        Path original = writeImage(300, 150, BufferedImage.TYPE_INT_RGB, "png");
+
+        thumbnailService.createRenditions(original);
+
+        BufferedImage small = ImageIO.read(testDir.resolve("content-300_48.jpg").toFile());
+        assertEquals(48, small.getWidth());
+        assertEquals(24, small.getHeight());
+        assertEquals(128, ImageIO.read(testDir.resolve("content-300_128.jpg").toFile()).getWidth());
+        assertTrue(Files.notExists(testDir.resolve("content-300_512.jpg")));
+    }
+
+    @Test
+    void keepsTransparencyInPngRenditions() throws IOException {
+        Path original = writeImage(100, 100, BufferedImage.TYPE_INT_ARGB, "png");
+
+        thumbnailService.createRenditions(original);
+
+        Path rendition = thumbnailService.findRendition(original, 48);
+        assertEquals(testDir.resolve("content-100_48.png"), rendition);
+        assertEquals(MediaType.IMAGE_PNG, thumbnailService.mediaTypeOf(rendition));
+    }
+
+    @Test
+    void findsNearestLargerRenditionAndFallsBackToOriginal() throws IOException {
+        Path original = writeImage(300, 300, BufferedImage.TYPE_INT_RGB, "png");
+        thumbnailService.createRenditions(original);
+
+        assertEquals(testDir.resolve("content-300_128.jpg"), thumbnailService.findRendition(original, 64));
+        assertNull(thumbnailService.findRendition(original, 200));
+
+        thumbnailService.deleteRenditions(original);
+        assertNull(thumbnailService.findRendition(original, 48));
+        assertTrue(Files.exists(original));
+    }
+
+    @Test
+    void skipsFilesThatAreNotImages() throws IOException {
+        Path original = testDir.resolve("content-text");
+        Files.writeString(original, "not an image");
+
+        thumbnailService.createRenditions(original);
+
+        assertNull(thumbnailService.findRendition(original, 48));
+    }
+}
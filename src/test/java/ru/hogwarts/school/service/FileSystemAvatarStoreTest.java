@@ -0,0 +1,66 @@
+package ru.hogwarts.school.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import ru.hogwarts.school.model.dto.AvatarView;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileSystemAvatarStoreTest {
+    static final String HASH = "2cc218346d962416fde239189f2ced20399ec8f223308c0c9e21ef0cd7a8e41a";
+
+    Path testDir;
+
+    FileSystemAvatarStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        testDir = Files.createTempDirectory("test-store");
+        store = new FileSystemAvatarStore(testDir);
+    }
+
+    @Test
+    void putShardsContentIntoTwoLevelDirectories() throws IOException {
+        Path source = Files.writeString(testDir.resolve("spool.upload"), "avatar-content");
+
+        store.put(HASH, source);
+
+        Path expected = testDir.resolve("2c").resolve("c2").resolve(HASH);
+        assertEquals(expected, store.file(HASH));
+        assertEquals(expected.toString(), store.location(HASH));
+        assertEquals("avatar-content", new String(store.get(HASH)));
+        assertTrue(Files.notExists(source));
+    }
+
+    @Test
+    void readsAndDeletesContentStoredInFlatLayout() throws IOException {
+        Path flat = Files.writeString(testDir.resolve(HASH), "avatar-content");
+
+        assertTrue(store.contains(HASH));
+        assertTrue(store.isLocationOf(flat.toString(), HASH));
+        AvatarView view = store.view(HASH, MediaType.IMAGE_PNG, 1000L);
+        assertEquals(flat, view.getFile());
+        assertEquals(14, view.getLength());
+
+        store.delete(HASH);
+
+        assertFalse(store.contains(HASH));
+        assertNull(store.view(HASH, MediaType.IMAGE_PNG, 1000L));
+    }
+
+    @Test
+    void putKeepsExistingContent() throws IOException {
+        store.put(HASH, "avatar-content".getBytes());
+        Path source = Files.writeString(testDir.resolve("spool.upload"), "other");
+
+        store.put(HASH, source);
+
+        assertEquals("avatar-content", new String(store.get(HASH)));
+        assertTrue(Files.notExists(source));
+    }
+}
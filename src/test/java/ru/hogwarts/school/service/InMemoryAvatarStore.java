@@ -0,0 +1,84 @@
+package ru.hogwarts.school.service;
+
+import org.springframework.http.MediaType;
+import ru.hogwarts.school.model.AvatarStorageEngine;
+import ru.hogwarts.school.model.dto.AvatarView;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+class InMemoryAvatarStore implements AvatarStore {
+    private static final String LOCATION_PREFIX = "memory:";
+
+    private final AvatarStorageEngine engine;
+
+    private final Map<String, byte[]> contents = new ConcurrentHashMap<>();
+
+    InMemoryAvatarStore(AvatarStorageEngine engine) {
+        this.engine = engine;
+    }
+
+    @Override
+    public AvatarStorageEngine getEngine() {
+        return engine;
+    }
+
+    @Override
+    public String location(String hash) {
+        return LOCATION_PREFIX + hash;
+    }
+
+    @Override
+    public boolean contains(String hash) {
+        return contents.containsKey(hash);
+    }
+
+    @Override
+    public void put(String hash, Path source) throws IOException {
+        if (!contains(hash)) {
+            contents.put(hash, Files.readAllBytes(source));
+        }
+        Files.delete(source);
+    }
+
+    @Override
+    public void put(String hash, byte[] data) {
+        contents.putIfAbsent(hash, data.clone());
+    }
+
+    @Override
+    public byte[] get(String hash) throws IOException {
+        return require(hash).clone();
+    }
+
+    @Override
+    public InputStream stream(String hash) throws IOException {
+        return new ByteArrayInputStream(require(hash));
+    }
+
+    @Override
+    public AvatarView view(String hash, MediaType mediaType, long lastModified) {
+        byte[] data = contents.get(hash);
+        return data == null ? null : new AvatarView(mediaType, ByteBuffer.wrap(data).asReadOnlyBuffer(), lastModified, hash);
+    }
+
+    @Override
+    public void delete(String hash) {
+        contents.remove(hash);
+    }
+
+    private byte[] require(String hash) throws IOException {
+        byte[] data = contents.get(hash);
+        if (data == null) {
+            throw new NoSuchFileException(location(hash));
+        }
+        return data;
+    }
+}
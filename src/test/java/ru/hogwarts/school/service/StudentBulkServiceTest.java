@@ -0,0 +1,186 @@
+package ru.hogwarts.school.service;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.exceptions.InvalidStudentBatchException;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.model.dto.NewStudent;
+import ru.hogwarts.school.model.dto.StudentBulkResult;
+import ru.hogwarts.school.model.dto.StudentUpsertResult;
+import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StudentBulkServiceTest {
+    @Mock
+    StudentRepository studentRepository;
+
+    @Mock
+    FacultyRepository facultyRepository;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    @Mock
+    EntityManager entityManager;
+
+    @Mock
+    JdbcTemplate jdbcTemplate;
+
+    StudentBulkService bulkService;
+
+    Faculty gryffindor = new Faculty("Gryffindor", "red");
+    Faculty slytherin = new Faculty("Slytherin", "green");
+
+    @BeforeEach
+    void setUp() {
+        gryffindor.setId(1L);
+        slytherin.setId(2L);
+        bulkService = new StudentBulkService(studentRepository, facultyRepository,
+                new TransactionTemplate(transactionManager), entityManager, jdbcTemplate, 2, 10);
+    }
+
+    @Test
+    void createStudentsResolvesFacultiesOnceAndCommitsInChunks() {
+        when(facultyRepository.findAllById(Set.of(1L, 2L))).thenReturn(List.of(gryffindor, slytherin));
+        List<List<Student>> saved = new ArrayList<>();
+        when(studentRepository.saveAllAndFlush(anyIterable())).thenAnswer(invocation -> {
+            List<Student> chunk = invocation.getArgument(0);
+            saved.add(chunk);
+            return chunk;
+        });
+
+        StudentBulkResult result = bulkService.createStudents(List.of(
+                new NewStudent("Harry Potter", 11, 1L),
+                new NewStudent("Draco Malfoy", 11, 2L),
+                new NewStudent("Ron Weasley", 11, 1L)));
+
+        assertEquals(3, result.getCreated());
+        assertEquals(2, result.getChunks());
+        assertEquals(2, saved.size());
+        assertEquals(slytherin, saved.get(0).get(1).getFaculty());
+        assertEquals("Ron Weasley", saved.get(1).get(0).getName());
+        verify(facultyRepository, times(1)).findAllById(any());
+        verify(transactionManager, times(2)).commit(any());
+        InOrder chunkOrder = inOrder(studentRepository, entityManager, transactionManager);
+        for (int i = 0; i < 2; i++) {
+            chunkOrder.verify(studentRepository).saveAllAndFlush(anyIterable());
+            chunkOrder.verify(entityManager).clear();
+            chunkOrder.verify(transactionManager).commit(any());
+        }
+    }
+
+    @Test
+    void createStudentsReportsTheChunkThatViolatesConstraints() {
+        when(facultyRepository.findAllById(Set.of(1L))).thenReturn(List.of(gryffindor));
+        when(studentRepository.saveAllAndFlush(anyIterable()))
+                .thenAnswer(invocation -> invocation.getArgument(0))
+                .thenThrow(new DataIntegrityViolationException("name_unique"));
+
+        StudentBulkResult result = bulkService.createStudents(List.of(
+                new NewStudent("Harry Potter", 11, 1L),
+                new NewStudent("Ron Weasley", 11, 1L),
+                new NewStudent("Hermione Granger", 11, 1L),
+                new NewStudent("Neville Longbottom", 11, 1L),
+                new NewStudent("Seamus Finnigan", 11, 1L)));
+
+        assertFalse(result.isComplete());
+        assertEquals(2, result.getCreated());
+        assertEquals(2, result.getFailedAt());
+        assertNotNull(result.getError());
+        verify(studentRepository, times(2)).saveAllAndFlush(anyIterable());
+        verify(transactionManager, times(1)).commit(any());
+        verify(transactionManager, times(1)).rollback(any());
+    }
+
+    @Test
+    void createStudentsRejectsInvalidBatchesBeforeWriting() {
+        when(facultyRepository.findAllById(Set.of(1L, 3L))).thenReturn(List.of(gryffindor));
+        List<NewStudent> tooMany = new ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            tooMany.add(new NewStudent("Student " + i, 11, 1L));
+        }
+
+        assertThrows(InvalidStudentBatchException.class, () -> bulkService.createStudents(tooMany));
+        assertThrows(InvalidStudentBatchException.class,
+                () -> bulkService.createStudents(List.of(new NewStudent(" ", 11, 1L))));
+        InvalidStudentBatchException missing = assertThrows(InvalidStudentBatchException.class,
+                () -> bulkService.createStudents(List.of(new NewStudent("Harry Potter", 11, 1L),
+                        new NewStudent("Cedric Diggory", 15, 3L))));
+        assertTrue(missing.getMessage().contains("3"));
+        assertThrows(InvalidStudentBatchException.class,
+                () -> bulkService.createStudents(List.of(new NewStudent("Harry Potter", 11, 1L),
+                        new NewStudent("Harry Potter", 12, 1L))));
+        verifyNoInteractions(studentRepository);
+    }
+
+    @Test
+    void upsertStudentsIssuesOneStatementPerBatchAndCountsOutcomes() throws Exception {
+        when(facultyRepository.findAllById(Set.of(1L))).thenReturn(List.of(gryffindor));
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("PostgreSQL");
+        ResultSet inserted = mock(ResultSet.class);
+        when(inserted.getBoolean(1)).thenReturn(true);
+        ResultSet updated = mock(ResultSet.class);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(2);
+            handler.processRow(inserted);
+            handler.processRow(updated);
+            return null;
+        }).doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(2);
+            handler.processRow(inserted);
+            return null;
+        }).doNothing()
+                .when(jdbcTemplate).query(startsWith("INSERT INTO student AS s"), any(PreparedStatementSetter.class),
+                        any(RowCallbackHandler.class));
+
+        StudentUpsertResult result = bulkService.upsertStudents(List.of(
+                new NewStudent("Harry Potter", 11, 1L),
+                new NewStudent("Ron Weasley", 12, 1L),
+                new NewStudent("Hermione Granger", 11, 1L),
+                new NewStudent("Neville Longbottom", 11, 1L),
+                new NewStudent("Ginny Weasley", 10, 1L)));
+
+        assertEquals(2, result.getInserted());
+        assertEquals(1, result.getUpdated());
+        assertEquals(2, result.getUnchanged());
+        assertEquals(3, result.getBatches());
+        verify(jdbcTemplate, times(3)).query(anyString(), any(PreparedStatementSetter.class), any(RowCallbackHandler.class));
+        verify(jdbcTemplate, times(1)).execute(any(ConnectionCallback.class));
+        verify(transactionManager, times(3)).commit(any());
+        verifyNoInteractions(studentRepository);
+    }
+
+    @Test
+    void upsertStudentsRejectsDuplicateNames() {
+        assertThrows(InvalidStudentBatchException.class, () -> bulkService.upsertStudents(List.of(
+                new NewStudent("Harry Potter", 11, 1L),
+                new NewStudent("Harry Potter", 12, 1L))));
+        verifyNoInteractions(jdbcTemplate, facultyRepository);
+    }
+}
@@ -0,0 +1,76 @@
+package ru.hogwarts.school.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StudentExportServiceTest {
+    @Mock
+    StudentRepository studentRepository;
+
+    @Mock
+    EntityManager entityManager;
+
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    StudentExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new StudentExportService(studentRepository, entityManager, objectMapper);
+    }
+
+    @Test
+    void exportWritesOneJsonRecordPerLineAndDetachesRows() throws IOException {
+        Student first = student(1, "Harry Potter", 11);
+        Student second = student(2, "Hermione Granger", 12);
+        when(studentRepository.streamAll()).thenReturn(Stream.of(first, second));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long exported = exportService.export(out);
+
+        assertEquals(2, exported);
+        String[] lines = out.toString().split("\n", -1);
+        assertEquals(3, lines.length);
+        assertEquals("", lines[2]);
+        JsonNode record = objectMapper.readTree(lines[1]);
+        assertEquals(2, record.get("id").asLong());
+        assertEquals("Hermione Granger", record.get("name").asText());
+        assertFalse(record.has("faculty"));
+        verify(entityManager).detach(first);
+        verify(entityManager).detach(second);
+    }
+
+    @Test
+    void exportFlushesFirstRecordAndLeavesStreamOpen() throws IOException {
+        when(studentRepository.streamAll()).thenReturn(Stream.of(student(1, "Ron Weasley", 11)));
+        OutputStream out = spy(new ByteArrayOutputStream());
+
+        exportService.export(out);
+
+        verify(out, atLeastOnce()).flush();
+        verify(out, never()).close();
+    }
+
+    private Student student(long id, String name, int age) {
+        Student student = new Student(name, age);
+        student.setId(id);
+        return student;
+    }
+}
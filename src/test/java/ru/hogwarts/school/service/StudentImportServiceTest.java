@@ -0,0 +1,182 @@
+package ru.hogwarts.school.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.dto.NewStudent;
+import ru.hogwarts.school.model.dto.StudentImportRejection;
+import ru.hogwarts.school.model.dto.StudentImportState;
+import ru.hogwarts.school.model.dto.StudentImportStatus;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class StudentImportServiceTest {
+    StudentBulkService bulkService = mock(StudentBulkService.class);
+
+    StudentImportService importService;
+
+    Faculty gryffindor = new Faculty("Gryffindor", "red");
+
+    @AfterEach
+    void tearDown() {
+        importService.shutdown();
+    }
+
+    @Test
+    void importWritesValidRowsInChunksAndReportsRejectedLines() throws Exception {
+        importService = new StudentImportService(bulkService, 1, 1, 2, 1, 10, Duration.ofHours(1));
+        gryffindor.setId(1L);
+        when(bulkService.findFaculties(any())).thenAnswer(invocation -> {
+            Set<Long> ids = invocation.getArgument(0);
+            return ids.contains(1L) ? Map.of(1L, gryffindor) : Map.of();
+        });
+        List<NewStudent> imported = new ArrayList<>();
+        doAnswer(invocation -> imported.addAll(invocation.getArgument(0))).when(bulkService).insertChunk(anyList(), any());
+        String csv = """
+                age,facultyId,name
+                11,1,"Potter, Harry"
+                11,1,
+                -3,1,Neville Longbottom
+
+                12,x,Luna Lovegood
+                15,9,Cedric Diggory
+                11,1,"Ron ""Ronald"" Weasley"
+                """;
+
+        StudentImportStatus status = await(importService.submit(stream(csv)).getId());
+
+        assertEquals(StudentImportState.DONE, status.getState());
+        assertEquals(6, status.getRowsRead());
+        assertEquals(2, status.getImported());
+        assertEquals(4, status.getRejected());
+        assertEquals(List.of(3L, 4L, 6L, 7L), status.getRejections().stream().map(StudentImportRejection::getLine).sorted().toList());
+        assertEquals(List.of("Potter, Harry", "Ron \"Ronald\" Weasley"), imported.stream().map(NewStudent::getName).toList());
+        verify(bulkService, times(1)).findFaculties(any());
+    }
+
+    @Test
+    void slowWriterThrottlesTheParser() throws Exception {
+        importService = new StudentImportService(bulkService, 1, 1, 1, 1, 10, Duration.ofHours(1));
+        gryffindor.setId(1L);
+        when(bulkService.findFaculties(any())).thenReturn(Map.of(1L, gryffindor));
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> release.await(5, TimeUnit.SECONDS)).when(bulkService).insertChunk(anyList(), any());
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            csv.append("Student ").append(i).append(",11,1\n");
+        }
+
+        UUID id = importService.submit(stream(csv.toString())).getId();
+        Thread.sleep(300);
+        StudentImportStatus running = importService.getJob(id);
+        release.countDown();
+
+        assertEquals(StudentImportState.RUNNING, running.getState());
+        assertTrue(running.getRowsRead() <= 4, "parser ran ahead: " + running.getRowsRead());
+        StudentImportStatus done = await(id);
+        assertEquals(StudentImportState.DONE, done.getState());
+        assertEquals(100, done.getImported());
+    }
+
+    @Test
+    void writerFailureFailsTheJob() throws Exception {
+        importService = new StudentImportService(bulkService, 1, 1, 1, 1, 10, Duration.ofHours(1));
+        gryffindor.setId(1L);
+        when(bulkService.findFaculties(any())).thenReturn(Map.of(1L, gryffindor));
+        doThrow(new IllegalStateException("db down")).when(bulkService).insertChunk(anyList(), any());
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            csv.append("Student ").append(i).append(",11,1\n");
+        }
+
+        StudentImportStatus status = await(importService.submit(stream(csv.toString())).getId());
+
+        assertEquals(StudentImportState.FAILED, status.getState());
+        assertEquals(0, status.getImported());
+        assertNotNull(status.getError());
+        verify(bulkService, times(1)).insertChunk(anyList(), any());
+    }
+
+    @Test
+    void writerFailureStopsTheParser() throws Exception {
+        int rows = 200_000;
+        importService = new StudentImportService(bulkService, 1, 1, 1, rows, 10, Duration.ofHours(1));
+        gryffindor.setId(1L);
+        when(bulkService.findFaculties(any())).thenReturn(Map.of(1L, gryffindor));
+        doThrow(new IllegalStateException("db down")).when(bulkService).insertChunk(anyList(), any());
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < rows; i++) {
+            csv.append("Student ").append(i).append(",11,1\n");
+        }
+
+        UUID id = importService.submit(stream(csv.toString())).getId();
+        await(id);
+        // the single import thread picks up the next job only after the first parser has returned
+        await(importService.submit(stream("")).getId());
+
+        StudentImportStatus status = importService.getJob(id);
+        assertEquals(StudentImportState.FAILED, status.getState());
+        assertTrue(status.getRowsRead() < rows, "parser read the whole file after the writer failed");
+    }
+
+    @Test
+    void constraintViolationsAreRejectedRowByRowWithPhysicalLineNumbers() throws Exception {
+        importService = new StudentImportService(bulkService, 1, 1, 4, 1, 10, Duration.ofHours(1));
+        gryffindor.setId(1L);
+        when(bulkService.findFaculties(any())).thenReturn(Map.of(1L, gryffindor));
+        List<String> imported = new ArrayList<>();
+        doAnswer(invocation -> {
+            List<NewStudent> chunk = invocation.getArgument(0);
+            if (chunk.stream().anyMatch(student -> student.getName().startsWith("Harry"))) {
+                throw new DataIntegrityViolationException("name_unique");
+            }
+            chunk.forEach(student -> imported.add(student.getName()));
+            return null;
+        }).when(bulkService).insertChunk(anyList(), any());
+        String csv = """
+                name,age,facultyId
+                "Luna
+                Lovegood",12,1
+                Harry Potter,11,1
+                Ron Weasley,11,1
+                Hermione Granger,11,1
+                """;
+
+        StudentImportStatus status = await(importService.submit(stream(csv)).getId());
+
+        assertEquals(StudentImportState.DONE, status.getState());
+        assertEquals(3, status.getImported());
+        assertEquals(List.of("Luna\nLovegood", "Ron Weasley", "Hermione Granger"), imported);
+        assertEquals(1, status.getRejected());
+        assertEquals(4L, status.getRejections().get(0).getLine());
+    }
+
+    private ByteArrayInputStream stream(String csv) {
+        return new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private StudentImportStatus await(UUID id) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        StudentImportStatus status = importService.getJob(id);
+        while (status.getFinishedAt() == null && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            status = importService.getJob(id);
+        }
+        return status;
+    }
+}
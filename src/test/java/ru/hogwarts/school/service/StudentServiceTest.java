@@ -5,7 +5,11 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Limit;
+import ru.hogwarts.school.exceptions.InvalidCursorException;
+import ru.hogwarts.school.exceptions.InvalidPageSizeException;
 import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.model.dto.StudentPage;
 import ru.hogwarts.school.repository.StudentRepository;
 
 import java.util.*;
@@ -95,6 +99,31 @@ class StudentServiceTest {
         verify(studentRepository).findAll();
     }
 
+    @Test
+    void testGetStudentsAfterReturnsCursorForNextPage() {
+        student1.setId(1L);
+        student2.setId(2L);
+        when(studentRepository.findAfter(0L, Limit.of(2))).thenReturn(List.of(student1, student2));
+        when(studentRepository.findAfter(1L, Limit.of(2))).thenReturn(List.of(student2));
+
+        StudentPage first = studentService.getStudentsAfter(null, 1);
+        StudentPage second = studentService.getStudentsAfter(first.getNext(), 1);
+
+        assertEquals(List.of(student1), first.getStudents());
+        assertNotNull(first.getNext());
+        assertEquals(List.of(student2), second.getStudents());
+        assertNull(second.getNext());
+    }
+
+    @Test
+    void testGetStudentsAfterCapsPageSize() {
+        when(studentRepository.findAfter(0L, Limit.of(501))).thenReturn(List.of(student1));
+
+        assertEquals(500, studentService.getStudentsAfter(null, 100_000).getLimit());
+        assertThrows(InvalidPageSizeException.class, () -> studentService.getStudentsAfter(null, 0));
+        assertThrows(InvalidCursorException.class, () -> studentService.getStudentsAfter("bogus", 10));
+    }
+
     @Test
     void testFindByAge() {
         when(studentRepository.findByAge(15)).thenReturn(List.of(student1));
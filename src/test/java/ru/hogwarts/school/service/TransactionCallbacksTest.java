@@ -0,0 +1,37 @@
+package ru.hogwarts.school.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class TransactionCallbacksTest {
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void locksAreReleasedBeforeCommitCallbacksRun() {
+        TransactionSynchronizationManager.initSynchronization();
+        ReentrantLock lock = new ReentrantLock();
+        List<Boolean> heldDuringCallback = new ArrayList<>();
+
+        TransactionCallbacks.afterCommit(() -> heldDuringCallback.add(lock.isHeldByCurrentThread()));
+        lock.lock();
+        TransactionCallbacks.unlockAfterCompletion(lock);
+        TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                TransactionSynchronization.STATUS_COMMITTED);
+
+        assertEquals(List.of(false), heldDuringCallback);
+        assertFalse(lock.isLocked());
+    }
+}